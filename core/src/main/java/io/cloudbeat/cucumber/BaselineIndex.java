@@ -0,0 +1,296 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Duration statistics of previous runs, keyed by case id and step order.
+ * Built once from one or more baseline result files, so that comparing the current run is a couple of map lookups per case.
+ */
+final class BaselineIndex {
+    static final String ERR_PERFORMANCE_REGRESSION = "PERFORMANCE_REGRESSION";
+
+    private final Map<Long, CaseBaseline> cases = new HashMap<>();
+    private int runCount;
+
+    private double relativeThreshold = 0.5;
+    private double zScoreThreshold = 0;
+    private long minDifference = 50;
+    // cases and steps of the last comparison checked with the relative threshold because their baseline doesn't vary
+    private int zScoreFallbackCount;
+
+    static final class Stats {
+        int count;
+        double mean;
+        double m2;
+
+        void add(long value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        double stdDev() {
+            return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+        }
+    }
+
+    static final class CaseBaseline {
+        final Stats duration = new Stats();
+        Stats[] steps = new Stats[0];
+        int[] stepNameHashes = new int[0];
+
+        Stats getStep(int order, String name) {
+            if (order < 0 || order >= steps.length || steps[order] == null)
+                return null;
+            // step was added, removed or reordered since the baseline run
+            if (name != null && stepNameHashes[order] != name.hashCode())
+                return null;
+            return steps[order];
+        }
+
+        private Stats getOrAddStep(int order, String name) {
+            if (order >= steps.length) {
+                Stats[] newSteps = new Stats[order + 1];
+                int[] newHashes = new int[order + 1];
+                System.arraycopy(steps, 0, newSteps, 0, steps.length);
+                System.arraycopy(stepNameHashes, 0, newHashes, 0, stepNameHashes.length);
+                steps = newSteps;
+                stepNameHashes = newHashes;
+            }
+            if (steps[order] == null) {
+                steps[order] = new Stats();
+                stepNameHashes[order] = name != null ? name.hashCode() : 0;
+            }
+            return steps[order];
+        }
+    }
+
+    /**
+     * Loads baseline results from a comma separated list of result files, in any of the {@link ResultEncoding}s.
+     */
+    static BaselineIndex Load(String paths) throws IOException {
+        BaselineIndex index = new BaselineIndex();
+        for (String path : paths.split(",")) {
+            path = path.trim();
+            if (path.isEmpty())
+                continue;
+            byte[] data = Files.readAllBytes(Paths.get(path));
+            try (JsonParser parser = ResultEncoding.detect(data).createMapper().getFactory().createParser(data)) {
+                index.addRun(parser);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Streams through a results file, reading only the fields used for timing. Everything else, screenshots and
+     * failure details included, is skipped without being decoded.
+     */
+    private void addRun(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT)
+            return;
+        boolean hasSuites = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("suites".equals(field) && value == JsonToken.START_ARRAY) {
+                hasSuites = true;
+                while (parser.nextToken() == JsonToken.START_OBJECT)
+                    addSuite(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (hasSuites)
+            runCount++;
+    }
+
+    private void addSuite(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("cases".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT)
+                    addCase(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void addCase(JsonParser parser) throws IOException {
+        long id = 0;
+        String status = null;
+        long caseDuration = 0;
+        List<long[]> steps = new ArrayList<>();
+        List<String> stepNames = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("id".equals(field))
+                id = parser.getValueAsLong();
+            else if ("status".equals(field))
+                status = parser.getValueAsString();
+            else if ("duration".equals(field))
+                caseDuration = parser.getValueAsLong();
+            else if ("steps".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT)
+                    readStep(parser, steps, stepNames);
+            } else
+                parser.skipChildren();
+        }
+        // only passed cases are representative for timing, failures usually abort early or hit timeouts
+        if (!ResultStatus.Passed.name().equals(status))
+            return;
+        CaseBaseline caze = cases.computeIfAbsent(id, caseId -> new CaseBaseline());
+        long stepsDuration = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            long[] step = steps.get(i);
+            stepsDuration += step[1];
+            caze.getOrAddStep((int)step[0], stepNames.get(i)).add(step[1]);
+        }
+        // older results don't carry case duration
+        caze.duration.add(caseDuration > 0 ? caseDuration : stepsDuration);
+    }
+
+    // adds (order, duration) and the name of a step
+    private static void readStep(JsonParser parser, List<long[]> steps, List<String> stepNames) throws IOException {
+        long order = 0;
+        long duration = 0;
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("order".equals(field))
+                order = parser.getValueAsLong();
+            else if ("duration".equals(field))
+                duration = parser.getValueAsLong();
+            else if ("name".equals(field))
+                name = parser.getValueAsString();
+            else
+                parser.skipChildren();
+        }
+        steps.add(new long[] { order, duration });
+        stepNames.add(name);
+    }
+
+    /**
+     * Returns mean duration of the case in the baseline runs or 0 if the case is not in the baseline.
+     */
+    double getCaseDuration(long caseId) {
+        CaseBaseline caze = cases.get(caseId);
+        return caze != null ? caze.duration.mean : 0;
+    }
+
+    int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Number of cases and steps the last {@link #compare} checked with the relative threshold although a z-score threshold is set,
+     * because their baseline durations don't vary.
+     */
+    int getZScoreFallbackCount() {
+        return zScoreFallbackCount;
+    }
+
+    void setRelativeThreshold(double relativeThreshold) {
+        this.relativeThreshold = relativeThreshold;
+    }
+
+    void setZScoreThreshold(double zScoreThreshold) {
+        this.zScoreThreshold = zScoreThreshold;
+    }
+
+    void setMinDifference(long minDifference) {
+        this.minDifference = minDifference;
+    }
+
+    /**
+     * Compares case and step durations with the baseline, marks them in their stats and returns all detected regressions.
+     */
+    List<RegressionModel> compare(List<CaseModel> currentCases) {
+        List<RegressionModel> regressions = new ArrayList<>();
+        zScoreFallbackCount = 0;
+        for (CaseModel caze : currentCases) {
+            CaseBaseline baseline = cases.get(caze.id);
+            if (baseline == null)
+                continue;
+
+            if (caze.stats == null)
+                caze.stats = new Hashtable<>();
+            RegressionModel caseRegression = check(caze.duration, baseline.duration, caze.stats);
+            if (caseRegression != null) {
+                caseRegression.caseId = caze.id;
+                caseRegression.caseName = caze.name;
+                regressions.add(caseRegression);
+            }
+
+            if (caze.steps == null)
+                continue;
+            for (StepModel step : caze.steps) {
+                Stats stepBaseline = baseline.getStep(step.order, step.name);
+                if (stepBaseline == null)
+                    continue;
+                if (step.stats == null)
+                    step.stats = new Hashtable<>();
+                RegressionModel stepRegression = check(step.duration, stepBaseline, step.stats);
+                if (stepRegression != null) {
+                    stepRegression.caseId = caze.id;
+                    stepRegression.caseName = caze.name;
+                    stepRegression.stepName = step.name;
+                    stepRegression.stepOrder = step.order;
+                    regressions.add(stepRegression);
+                }
+            }
+        }
+        return regressions;
+    }
+
+    private RegressionModel check(long duration, Stats baseline, Dictionary<String, String> stats) {
+        if (baseline.count == 0)
+            return null;
+        long baselineDuration = Math.round(baseline.mean);
+        stats.put("baselineDuration", Long.toString(baselineDuration));
+
+        if (duration - baselineDuration < minDifference)
+            return null;
+
+        double stdDev = baseline.stdDev();
+        Double zScore = null;
+        boolean isRegression;
+        if (zScoreThreshold > 0 && stdDev > 0) {
+            zScore = (duration - baseline.mean) / stdDev;
+            stats.put("zScore", String.format(Locale.ROOT, "%.2f", zScore));
+            isRegression = zScore > zScoreThreshold;
+        } else {
+            // a z-score needs variance, i.e. at least 2 baseline runs with different durations
+            if (zScoreThreshold > 0)
+                zScoreFallbackCount++;
+            isRegression = duration > baseline.mean * (1 + relativeThreshold);
+        }
+
+        if (!isRegression)
+            return null;
+
+        stats.put("regression", "true");
+        RegressionModel regression = new RegressionModel();
+        regression.duration = duration;
+        regression.baselineDuration = baselineDuration;
+        regression.zScore = zScore;
+        return regression;
+    }
+}
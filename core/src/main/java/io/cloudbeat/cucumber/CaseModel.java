@@ -7,5 +7,6 @@ public class CaseModel extends TestResultEntityWithId {
     public int iterationNum;
     public Dictionary<String, Object> сontext;
     public ArrayList<StepModel> steps;
+    public Dictionary<String, String> stats;
     public short order;
 }
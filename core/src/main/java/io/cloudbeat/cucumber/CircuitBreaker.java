@@ -0,0 +1,89 @@
+package io.cloudbeat.cucumber;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Opens when the recent cases indicate that the rest of the run is going to fail as well, for example because the
+ * application under test is down. Looks at a sliding window of the last finished cases and opens if either
+ * the failure rate within the window or the number of failures with the same error signature reaches its threshold.
+ * <p>
+ * The error signature is the first line of the error message with numbers masked, so that e.g. timeouts
+ * reported with different durations or ports still count as the same error.
+ */
+final class CircuitBreaker {
+    private static final int MAX_SIGNATURE_LENGTH = 200;
+
+    private final int windowSize;
+    private final double maxFailureRate;
+    private final int maxSameErrors;
+    // signature of each case in the window, "" for a passed case, null for a failed case without error message,
+    // hence not an ArrayDeque
+    private final Deque<String> window = new LinkedList<>();
+    private final Map<String, Integer> signatureCounts = new HashMap<>();
+    private int failureCount;
+    private volatile String openReason;
+
+    /**
+     * @param windowSize number of last finished cases to look at
+     * @param maxFailureRate failure rate (0..1) within a full window which opens the breaker, 0 disables the check
+     * @param maxSameErrors number of failures with the same error signature within the window which opens the breaker, 0 disables the check
+     */
+    CircuitBreaker(int windowSize, double maxFailureRate, int maxSameErrors) {
+        this.windowSize = windowSize;
+        this.maxFailureRate = maxFailureRate;
+        this.maxSameErrors = maxSameErrors;
+    }
+
+    /**
+     * Records a finished case.
+     * @return the reason if this case opened the breaker, otherwise null
+     */
+    synchronized String recordCase(boolean isPassed, String errorMessage) {
+        if (openReason != null)
+            return null;
+
+        String signature = isPassed ? "" : getSignature(errorMessage);
+        window.addLast(signature);
+        if (!isPassed)
+            failureCount++;
+        if (signature != null && !signature.isEmpty())
+            signatureCounts.merge(signature, 1, Integer::sum);
+        if (window.size() > windowSize)
+            remove(window.removeFirst());
+
+        if (maxSameErrors > 0 && signature != null && !signature.isEmpty() && signatureCounts.get(signature) >= maxSameErrors)
+            openReason = "Circuit breaker opened after " + signatureCounts.get(signature) + " of the last " + window.size() + " cases failed with the same error: " + signature;
+        else if (maxFailureRate > 0 && window.size() == windowSize && failureCount >= maxFailureRate * windowSize)
+            openReason = "Circuit breaker opened after " + failureCount + " of the last " + windowSize + " cases failed";
+        return openReason;
+    }
+
+    /**
+     * Returns why the breaker opened, or null if it's closed.
+     */
+    String getOpenReason() {
+        return openReason;
+    }
+
+    private void remove(String signature) {
+        if ("".equals(signature))
+            return;
+        failureCount--;
+        if (signature != null)
+            signatureCounts.computeIfPresent(signature, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    static String getSignature(String errorMessage) {
+        if (errorMessage == null)
+            return null;
+        int lineEnd = errorMessage.indexOf('\n');
+        String firstLine = (lineEnd >= 0 ? errorMessage.substring(0, lineEnd) : errorMessage).trim();
+        if (firstLine.isEmpty())
+            return null;
+        String signature = firstLine.replaceAll("\\d+", "#");
+        return signature.length() > MAX_SIGNATURE_LENGTH ? signature.substring(0, MAX_SIGNATURE_LENGTH) : signature;
+    }
+}
@@ -0,0 +1,171 @@
+package io.cloudbeat.cucumber;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Copies everything written to {@code System.out} and {@code System.err} into a fixed-size ring buffer of the writing thread,
+ * so that the output of a failed step can be attached to its failure.
+ * <p>
+ * Buffers are only ever written and read by their own thread, so no locking is needed and writes don't allocate.
+ * When a step writes more than the buffer size, only the tail is kept.
+ */
+public final class ConsoleCapture {
+    private static volatile ConsoleCapture instance;
+
+    private final int bufferSize;
+    private final ThreadLocal<RingBuffer> buffers;
+
+    private ConsoleCapture(int bufferSize) {
+        this.bufferSize = bufferSize;
+        this.buffers = ThreadLocal.withInitial(() -> new RingBuffer(this.bufferSize));
+    }
+
+    /**
+     * Starts capturing. Only the first call installs the capture, subsequent ones return the installed instance.
+     * @param bufferSize bytes kept per thread
+     */
+    static synchronized ConsoleCapture install(int bufferSize) {
+        if (instance == null) {
+            instance = new ConsoleCapture(bufferSize);
+            System.setOut(instance.tee(System.out));
+            System.setErr(instance.tee(System.err));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns a {@code java.util.logging} handler which writes formatted records into the buffer of the logging thread.
+     * Useful for loggers whose console handler was created before the capture was installed.
+     * Records are dropped when the capture isn't enabled.
+     */
+    public static Handler getLogHandler() {
+        return new LogHandler();
+    }
+
+    /**
+     * Marks the start of a step on the current thread.
+     */
+    void markStep() {
+        RingBuffer buffer = buffers.get();
+        buffer.mark = buffer.written;
+    }
+
+    /**
+     * Returns what the current thread wrote since the last {@link #markStep()}, limited to the buffer size, or null if nothing.
+     */
+    String getStepOutput() {
+        RingBuffer buffer = buffers.get();
+        if (buffer.written == buffer.mark)
+            return null;
+        return buffer.readString(buffer.mark, Charset.defaultCharset());
+    }
+
+    private PrintStream tee(PrintStream original) {
+        return new PrintStream(new TeeOutputStream(original), true);
+    }
+
+    private final class TeeOutputStream extends OutputStream {
+        private final PrintStream original;
+
+        TeeOutputStream(PrintStream original) {
+            this.original = original;
+        }
+
+        @Override
+        public void write(int b) {
+            original.write(b);
+            buffers.get().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            original.write(b, off, len);
+            buffers.get().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            original.flush();
+        }
+    }
+
+    static final class RingBuffer {
+        private final byte[] data;
+        // total number of bytes ever written, the write position is written % data.length
+        long written;
+        long mark;
+
+        RingBuffer(int size) {
+            data = new byte[size];
+        }
+
+        void write(int b) {
+            data[(int)(written % data.length)] = (byte)b;
+            written++;
+        }
+
+        void write(byte[] b, int off, int len) {
+            if (len > data.length) {
+                // only the tail fits
+                off += len - data.length;
+                written += len - data.length;
+                len = data.length;
+            }
+            int pos = (int)(written % data.length);
+            int first = Math.min(len, data.length - pos);
+            System.arraycopy(b, off, data, pos, first);
+            System.arraycopy(b, off + first, data, 0, len - first);
+            written += len;
+        }
+
+        byte[] read(long from) {
+            long start = Math.max(from, written - data.length);
+            byte[] out = new byte[(int)(written - start)];
+            int pos = (int)(start % data.length);
+            int first = Math.min(out.length, data.length - pos);
+            System.arraycopy(data, pos, out, 0, first);
+            System.arraycopy(data, 0, out, first, out.length - first);
+            return out;
+        }
+
+        String readString(long from, Charset charset) {
+            byte[] out = read(from);
+            int start = 0;
+            if (charset.equals(StandardCharsets.UTF_8)) {
+                // the tail may start within a multi-byte character, skip its continuation bytes instead of decoding them to U+FFFD
+                while (start < out.length && start < 3 && (out[start] & 0xC0) == 0x80)
+                    start++;
+            }
+            return new String(out, start, out.length - start, charset);
+        }
+    }
+
+    private static final class LogHandler extends Handler {
+        LogHandler() {
+            setFormatter(new SimpleFormatter());
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            ConsoleCapture capture = instance;
+            if (capture == null || !isLoggable(record))
+                return;
+            byte[] bytes = getFormatter().format(record).getBytes(Charset.defaultCharset());
+            capture.buffers.get().write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.cloudbeat.cucumber;
+
+import org.openqa.selenium.WebDriver;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public abstract class CucumberRunner {
+    private static WebDriver _webDriver;
+    private static Supplier<WebDriver> _webDriverGetter;
+    private static volatile WebDriverPool _webDriverPool;
+    private static Thread _webDriverPoolShutdownHook;
+    private static final ThreadLocal<WebDriver> _leasedWebDriver = new ThreadLocal<>();
+    private static volatile boolean _canceled;
+    private static volatile String _skipReason;
+    private static final ThreadLocal<String> _scenarioSkipReason = new ThreadLocal<>();
+    // why skipIfNeeded skipped the scenario running on the thread
+    private static final ThreadLocal<String> _thrownSkipReason = new ThreadLocal<>();
+    // exceptions Cucumber reports as a skipped step, in order of preference
+    private static final String[] SKIP_EXCEPTIONS = {
+            "org.junit.AssumptionViolatedException",
+            "org.opentest4j.TestAbortedException",
+            "org.testng.SkipException"
+    };
+
+    protected static void setWebDriver(WebDriver webDriver) {
+        _webDriver = webDriver;
+    }
+
+    protected static void setWebDriverGetter(Supplier<WebDriver> webDriverGetter) {
+        _webDriverGetter = webDriverGetter;
+    }
+
+    /**
+     * Sessions from the pool are leased per thread on the first {@link #getWebDriver()} call of a scenario
+     * and returned to the pool when the scenario finishes. A replaced pool is closed, the current one on JVM shutdown.
+     */
+    protected static synchronized void setWebDriverPool(WebDriverPool webDriverPool) {
+        WebDriverPool previous = _webDriverPool;
+        _webDriverPool = webDriverPool;
+        if (previous != null && previous != webDriverPool)
+            previous.close();
+        if (_webDriverPoolShutdownHook == null) {
+            _webDriverPoolShutdownHook = new Thread(() -> {
+                WebDriverPool pool = _webDriverPool;
+                if (pool != null)
+                    pool.close();
+            }, "CloudBeat WebDriver pool shutdown");
+            Runtime.getRuntime().addShutdownHook(_webDriverPoolShutdownHook);
+        }
+    }
+
+    public static WebDriver getWebDriver() {
+        if (_webDriverPool != null)
+            return leaseWebDriver();
+        else if (_webDriver != null)
+            return _webDriver;
+        else if (_webDriverGetter != null)
+            return _webDriverGetter.get();
+        return null;
+    }
+
+    /**
+     * Returns the session leased by the current thread, leasing one from the pool if needed.
+     */
+    public static WebDriver leaseWebDriver() {
+        WebDriver driver = _leasedWebDriver.get();
+        WebDriverPool pool = _webDriverPool;
+        if (driver == null && pool != null) {
+            driver = pool.lease();
+            _leasedWebDriver.set(driver);
+        }
+        return driver;
+    }
+
+    /**
+     * Returns the session leased by the current thread to the pool.
+     */
+    public static void releaseWebDriver() {
+        WebDriver driver = _leasedWebDriver.get();
+        WebDriverPool pool = _webDriverPool;
+        _leasedWebDriver.remove();
+        // sessions of a replaced pool were quit when it was closed
+        if (driver != null && pool != null)
+            pool.release(driver);
+    }
+
+    /**
+     * Driver to take screenshots from. Unlike {@link #getWebDriver()} this never leases a new session.
+     */
+    static WebDriver getScreenshotWebDriver() {
+        if (_webDriverPool != null)
+            return _leasedWebDriver.get();
+        return getWebDriver();
+    }
+
+    /**
+     * Returns true once the test monitor has canceled the run.
+     */
+    public static boolean isCanceled() {
+        return _canceled;
+    }
+
+    static void setCanceled(boolean canceled) {
+        _canceled = canceled;
+    }
+
+    /**
+     * Returns why the remaining scenarios are skipped by the circuit breaker, or null if they aren't.
+     */
+    static String getSkipReason() {
+        return _skipReason;
+    }
+
+    static void setSkipReason(String reason) {
+        _skipReason = reason;
+    }
+
+    /**
+     * Skips the scenario starting on the current thread, or clears the skip if the reason is null.
+     */
+    static void setScenarioSkipReason(String reason) {
+        if (reason != null)
+            _scenarioSkipReason.set(reason);
+        else
+            _scenarioSkipReason.remove();
+    }
+
+    /**
+     * Returns why {@link #skipIfNeeded()} skipped the scenario running on the current thread, or null if it didn't, and clears it.
+     */
+    static String takeThrownSkipReason() {
+        String reason = _thrownSkipReason.get();
+        _thrownSkipReason.remove();
+        return reason;
+    }
+
+    /**
+     * Skips the calling scenario if the run was canceled, the circuit breaker opened or the scenario's result is taken from the result cache.
+     * Plugins can't stop Cucumber, so call it from a before hook for such scenarios to be skipped rather than run:
+     * <pre>
+     * &#64;Before(order = 0)
+     * public void skipIfNeeded() {
+     *     CucumberRunner.skipIfNeeded();
+     * }
+     * </pre>
+     * Throws the first of JUnit 4's {@code AssumptionViolatedException}, opentest4j's {@code TestAbortedException} or
+     * TestNG's {@code SkipException} found on the classpath, which Cucumber reports as skipped.
+     * Without any of them the scenario fails instead.
+     */
+    public static void skipIfNeeded() {
+        String message = _canceled ? "Run was canceled" : _skipReason != null ? _skipReason : _scenarioSkipReason.get();
+        if (message == null)
+            return;
+        _thrownSkipReason.set(message);
+        for (String className : SKIP_EXCEPTIONS) {
+            RuntimeException exception;
+            try {
+                exception = (RuntimeException)Class.forName(className).getConstructor(String.class).newInstance(message);
+            } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+                continue;
+            }
+            throw exception;
+        }
+        throw new IllegalStateException(message);
+    }
+
+    /**
+     * Runs Cucumber and then reruns the scenarios which failed, in the same JVM, until they pass or {@code maxAttempts} is reached.
+     * Every attempt is reported as a separate iteration of the case. No further attempts are made once the run is canceled or the circuit breaker opened.
+     * <pre>
+     * CucumberRunner.runWithRerun(Collections.singletonList("classpath:features"), 3,
+     *         features -&gt; Main.run(args(features), Thread.currentThread().getContextClassLoader()));
+     * </pre>
+     * @param features feature paths for the first attempt
+     * @param maxAttempts maximum number of attempts, including the first one
+     * @param run runs Cucumber on the given feature paths or {@code uri:line} locations and returns its exit status
+     * @return exit status of the last attempt
+     */
+    public static byte runWithRerun(List<String> features, int maxAttempts, Function<List<String>, Byte> run) {
+        ResultReporter reporter = ResultReporter.beginSession();
+        try {
+            byte exitStatus = run.apply(features);
+            // without the plugin there is no way to tell which scenarios failed
+            if (!reporter.isInitialized())
+                return exitStatus;
+            for (int attempt = 2; attempt <= maxAttempts && exitStatus != 0 && !_canceled && _skipReason == null; attempt++) {
+                List<String> failed = reporter.nextIteration();
+                if (failed.isEmpty())
+                    break;
+                exitStatus = run.apply(failed);
+            }
+            return exitStatus;
+        } finally {
+            ResultReporter.endSession();
+        }
+    }
+}
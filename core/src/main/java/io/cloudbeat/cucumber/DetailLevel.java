@@ -0,0 +1,29 @@
+package io.cloudbeat.cucumber;
+
+/**
+ * How much detail is kept for finished cases, set with the {@code detaillevel} system property.
+ */
+enum DetailLevel {
+    // all steps, hooks and embeddings of every case
+    FULL("full"),
+    // passed cases are reduced to a summary as soon as they finish
+    FAILURES_ONLY("failures-only"),
+    // every case is reduced to a summary, failed ones keep the first error message
+    SUMMARY("summary");
+
+    private final String value;
+
+    DetailLevel(final String newValue) {
+        value = newValue;
+    }
+
+    public String getValue() { return value; }
+
+    static DetailLevel fromValue(String value) {
+        for (DetailLevel level : values()) {
+            if (level.value.equalsIgnoreCase(value))
+                return level;
+        }
+        return null;
+    }
+}
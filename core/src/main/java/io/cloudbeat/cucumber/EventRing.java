@@ -0,0 +1,189 @@
+package io.cloudbeat.cucumber;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded ring of preallocated event slots between the threads running scenarios and a single consumer thread,
+ * so that building the results and reporting statuses doesn't add to the duration of the test cases.
+ * <p>
+ * Producers {@link #claim()} the next slot, copy the event fields into it and {@link #publish(Slot)} it. Slots are
+ * handled in claim order, so anything slow should be done before claiming. When the ring is full, producers wait for
+ * the consumer (back-pressure) rather than dropping events, and the waits are counted and logged when the ring is closed.
+ */
+public final class EventRing<T extends EventRing.Slot> {
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long CONSUMER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Base class of the slots, holding the sequence the slot was claimed for.
+     */
+    public abstract static class Slot {
+        long sequence;
+
+        /**
+         * Drops references to the event once it has been handled, so that the ring doesn't keep them alive.
+         */
+        protected abstract void clear();
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final Consumer<T> handler;
+    private final Thread consumer;
+    // last claimed sequence
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // sequence last published into each slot
+    private final AtomicLongArray published;
+    // last sequence handled by the consumer, slots up to it can be claimed again
+    private volatile long consumed = -1;
+    private volatile boolean isConsumerWaiting;
+    private volatile boolean isClosed;
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private long failedCount;
+
+    /**
+     * Creates the ring and starts the consumer thread.
+     * @param capacity number of slots, rounded up to a power of two
+     * @param slotFactory creates the slots
+     * @param handler handles published slots on the consumer thread
+     */
+    public EventRing(int capacity, Supplier<T> slotFactory, Consumer<T> handler) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++)
+            slots[i] = slotFactory.get();
+        mask = size - 1;
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            published.set(i, -1);
+        this.handler = handler;
+        consumer = new Thread(this::consume, "CloudBeat events");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring is full. Must be followed by {@link #publish(Slot)}.
+     */
+    @SuppressWarnings("unchecked")
+    public T claim() {
+        long sequence = claimed.incrementAndGet();
+        // the slot is free once the consumer is done with the sequence a lap earlier
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > consumed)
+            waitForSlot(wrapPoint);
+        highWaterMark.accumulateAndGet((int)(sequence - consumed), Math::max);
+        T slot = (T)slots[(int)(sequence & mask)];
+        slot.sequence = sequence;
+        return slot;
+    }
+
+    public void publish(T slot) {
+        published.set((int)(slot.sequence & mask), slot.sequence);
+        if (isConsumerWaiting)
+            LockSupport.unpark(consumer);
+    }
+
+    /**
+     * Waits until the consumer handled everything published so far. Must not be called from the consumer thread.
+     */
+    public void drain() {
+        long target = claimed.get();
+        while (consumed < target && consumer.isAlive()) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Drains the ring, stops the consumer and logs how often producers had to wait for it.
+     */
+    public void close() {
+        drain();
+        isClosed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (overflowCount.get() > 0) {
+            System.out.println("[CloudBeat] Event buffer of " + slots.length + " events was full " + overflowCount.get() + " times, runner threads waited "
+                    + TimeUnit.NANOSECONDS.toMillis(blockedNanos.get()) + " ms in total. Consider increasing eventbuffersize.");
+        }
+        if (failedCount > 0)
+            System.err.println("[CloudBeat] " + failedCount + " events could not be handled, results may be incomplete.");
+    }
+
+    /**
+     * Number of claims which found the ring full and had to wait for the consumer.
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * Total time producers spent waiting for a free slot.
+     */
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    /**
+     * Largest number of events waiting for the consumer, including the one being claimed.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    private void waitForSlot(long wrapPoint) {
+        overflowCount.incrementAndGet();
+        long waitStart = System.nanoTime();
+        while (wrapPoint > consumed) {
+            if (!consumer.isAlive())
+                throw new IllegalStateException("CloudBeat event consumer is not running");
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+        }
+        blockedNanos.addAndGet(System.nanoTime() - waitStart);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void consume() {
+        long next = 0;
+        while (true) {
+            int index = (int)(next & mask);
+            if (published.get(index) == next) {
+                T slot = (T)slots[index];
+                try {
+                    handler.accept(slot);
+                } catch (RuntimeException e) {
+                    // keep going, a lost event only affects its own case
+                    failedCount++;
+                    System.err.println("[CloudBeat] Unable to handle event: " + e);
+                }
+                slot.clear();
+                consumed = next++;
+                continue;
+            }
+            if (isClosed && claimed.get() < next)
+                return;
+            isConsumerWaiting = true;
+            if (published.get(index) != next)
+                LockSupport.parkNanos(this, CONSUMER_PARK_NANOS);
+            isConsumerWaiting = false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.cloudbeat.cucumber;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Periodic status updates of cases that are still running.
+ * <p>
+ * Event handlers only update the state of the case running on their thread. A single scheduler thread reads that state
+ * and sends the updates with a fixed delay in between, so at most one update is in flight and a slow test monitor
+ * results in fewer updates rather than queued ones.
+ */
+final class Heartbeat {
+    static final class RunningCase {
+        final long caseId;
+        final String name;
+        final long startNanos;
+        final int stepCount;
+        // 1 based index of the running step, 0 before the first step
+        volatile int stepIndex;
+        // set when the case finished or the run ended, no updates are sent after that. Updates are sent while holding
+        // the case's monitor, so setting it through finish() waits for an update in flight.
+        volatile boolean isFinished;
+
+        RunningCase(long caseId, String name, long startNanos, int stepCount) {
+            this.caseId = caseId;
+            this.name = name;
+            this.startNanos = startNanos;
+            this.stepCount = stepCount;
+        }
+
+        synchronized void finish() {
+            isFinished = true;
+        }
+    }
+
+    // thread id -> case running on that thread
+    private final Map<Long, RunningCase> runningCases = new ConcurrentHashMap<>();
+    private final long intervalNanos;
+    private final BiConsumer<RunningCase, Long> sender;
+    private volatile ScheduledExecutorService executor;
+
+    /**
+     * @param intervalMillis minimum time between updates, also the minimum case duration before the first update
+     * @param sender sends an update of a running case, called with the current {@link System#nanoTime()}
+     */
+    Heartbeat(long intervalMillis, BiConsumer<RunningCase, Long> sender) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.sender = sender;
+    }
+
+    void caseStarted(RunningCase runningCase) {
+        runningCases.put(Thread.currentThread().getId(), runningCase);
+        if (executor == null)
+            start();
+    }
+
+    void stepStarted() {
+        RunningCase runningCase = runningCases.get(Thread.currentThread().getId());
+        if (runningCase != null)
+            runningCase.stepIndex++;
+    }
+
+    void caseFinished() {
+        RunningCase runningCase = runningCases.remove(Thread.currentThread().getId());
+        if (runningCase != null)
+            runningCase.finish();
+    }
+
+    synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        for (RunningCase runningCase : runningCases.values())
+            runningCase.finish();
+        runningCases.clear();
+    }
+
+    private synchronized void start() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CloudBeat heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::tick, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void tick() {
+        long nowNanos = System.nanoTime();
+        for (RunningCase runningCase : runningCases.values()) {
+            if (runningCase.isFinished || nowNanos - runningCase.startNanos < intervalNanos)
+                continue;
+            try {
+                sender.accept(runningCase, nowNanos);
+            } catch (RuntimeException e) {
+                // an exception would cancel the schedule
+                System.err.println("[CloudBeat] Unable to send heartbeat: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.cloudbeat.cucumber;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
+
+/**
+ * Heap and GC counters of the JVM plus the bytes allocated by the current thread, taken when a case starts and finishes.
+ * Heap and GC figures are JVM wide, so with scenarios running in parallel they include the other running cases.
+ * Allocated bytes are counted per thread and only cover the case itself.
+ */
+public final class MemorySample {
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+    private static final boolean[] IS_FULL_COLLECTOR = new boolean[COLLECTORS.size()];
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    static {
+        for (int i = 0; i < COLLECTORS.size(); i++) {
+            // old generation collectors of the serial, parallel, CMS and G1 collectors
+            String name = COLLECTORS.get(i).getName();
+            IS_FULL_COLLECTOR[i] = name.contains("MarkSweep") || name.contains("Old");
+        }
+    }
+
+    final long heapUsed;
+    final long gcCount;
+    final long gcTime;
+    final long fullGcCount;
+    // -1 if the JVM doesn't count allocated bytes per thread
+    final long allocatedBytes;
+
+    MemorySample(long heapUsed, long gcCount, long gcTime, long fullGcCount, long allocatedBytes) {
+        this.heapUsed = heapUsed;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+        this.fullGcCount = fullGcCount;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    static MemorySample take() {
+        long gcCount = 0;
+        long gcTime = 0;
+        long fullGcCount = 0;
+        for (int i = 0; i < COLLECTORS.size(); i++) {
+            // -1 if undefined for the collector
+            long count = Math.max(0, COLLECTORS.get(i).getCollectionCount());
+            gcCount += count;
+            gcTime += Math.max(0, COLLECTORS.get(i).getCollectionTime());
+            if (IS_FULL_COLLECTOR[i])
+                fullGcCount += count;
+        }
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return new MemorySample(heapUsed, gcCount, gcTime, fullGcCount, getAllocatedBytes(THREADS));
+    }
+
+    // -1 without the com.sun.management extension of the bean or with allocation counting disabled
+    static long getAllocatedBytes(ThreadMXBean threadBean) {
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)threadBean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+            return -1;
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Puts the differences between the start and this sample into case stats.
+     * @return the same differences for the run summary, without the case fields
+     */
+    MemorySummaryModel.CaseMemory putDeltas(MemorySample start, Dictionary<String, String> stats) {
+        MemorySummaryModel.CaseMemory memory = new MemorySummaryModel.CaseMemory();
+        memory.heapUsedDelta = heapUsed - start.heapUsed;
+        memory.gcCount = gcCount - start.gcCount;
+        memory.gcTime = gcTime - start.gcTime;
+        memory.fullGcCount = fullGcCount - start.fullGcCount;
+        if (allocatedBytes >= 0 && start.allocatedBytes >= 0)
+            memory.allocatedBytes = allocatedBytes - start.allocatedBytes;
+
+        stats.put("heapUsedDelta", Long.toString(memory.heapUsedDelta));
+        stats.put("gcCount", Long.toString(memory.gcCount));
+        stats.put("gcTime", Long.toString(memory.gcTime));
+        stats.put("fullGcCount", Long.toString(memory.fullGcCount));
+        if (memory.allocatedBytes != null)
+            stats.put("allocatedBytes", Long.toString(memory.allocatedBytes));
+        return memory;
+    }
+
+    /**
+     * Summarizes the run from its start and this sample, and the cases whose memory was sampled.
+     */
+    MemorySummaryModel summarize(MemorySample runStart, List<MemorySummaryModel.CaseMemory> cases, int topCount) {
+        MemorySummaryModel summary = new MemorySummaryModel();
+        summary.heapUsedStart = runStart.heapUsed;
+        summary.heapUsedEnd = heapUsed;
+        summary.gcCount = gcCount - runStart.gcCount;
+        summary.gcTime = gcTime - runStart.gcTime;
+        summary.fullGcCount = fullGcCount - runStart.fullGcCount;
+
+        List<MemorySummaryModel.CaseMemory> sorted = new ArrayList<>(cases);
+        // allocated bytes when available, heap growth otherwise
+        sorted.sort((a, b) -> Long.compare(
+                b.allocatedBytes != null ? b.allocatedBytes : b.heapUsedDelta,
+                a.allocatedBytes != null ? a.allocatedBytes : a.heapUsedDelta));
+        summary.topAllocatingCases = new ArrayList<>(sorted.subList(0, Math.min(topCount, sorted.size())));
+        summary.fullGcCases = new ArrayList<>();
+        for (MemorySummaryModel.CaseMemory caze : cases) {
+            if (caze.fullGcCount > 0)
+                summary.fullGcCases.add(caze);
+        }
+        return summary;
+    }
+}
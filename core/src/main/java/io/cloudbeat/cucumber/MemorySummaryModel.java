@@ -0,0 +1,25 @@
+package io.cloudbeat.cucumber;
+
+import java.util.List;
+
+public class MemorySummaryModel {
+    public long heapUsedStart;
+    public long heapUsedEnd;
+    public long gcCount;
+    // ms
+    public long gcTime;
+    public long fullGcCount;
+    public List<CaseMemory> topAllocatingCases;
+    public List<CaseMemory> fullGcCases;
+
+    public static class CaseMemory {
+        public long caseId;
+        public String caseName;
+        public int iterationNum;
+        public Long allocatedBytes;
+        public long heapUsedDelta;
+        public long gcCount;
+        public long gcTime;
+        public long fullGcCount;
+    }
+}
@@ -0,0 +1,92 @@
+package io.cloudbeat.cucumber;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Running estimates of progress, throughput and remaining time.
+ * Cases are weighted by their expected duration, taken from the baseline when available and from an
+ * exponentially weighted moving average of finished cases otherwise.
+ */
+final class ProgressEstimator {
+    // weight of the latest sample in moving averages
+    private static final double ALPHA = 0.2;
+    // throughput is considered dropped when the recent rate falls below this fraction of the overall rate
+    private static final double DROP_RATIO = 0.5;
+    // minimum finished cases before the throughput drop detection kicks in
+    private static final int DROP_MIN_CASES = 10;
+
+    private final long startNanos;
+    private final Map<Long, Double> expectedDurations = new HashMap<>();
+    private final double expectedKnownTotal;
+    private final int unknownTotal;
+    private final Set<Long> completed = new HashSet<>();
+
+    private double expectedKnownDone;
+    private int unknownDone;
+    // cases in the moving averages
+    private int sampled;
+    private double averageDuration;
+    private double averageInterval;
+    private long lastFinishNanos;
+
+    ProgressEstimator(long startNanos, Collection<PayloadModel.Case> cases, BaselineIndex baseline) {
+        this.startNanos = startNanos;
+        this.lastFinishNanos = startNanos;
+        double knownTotal = 0;
+        int unknown = 0;
+        for (PayloadModel.Case caze : cases) {
+            double expected = baseline != null ? baseline.getCaseDuration(caze.id) : 0;
+            if (expected > 0) {
+                expectedDurations.put(caze.id, expected);
+                knownTotal += expected;
+            } else {
+                unknown++;
+            }
+        }
+        this.expectedKnownTotal = knownTotal;
+        this.unknownTotal = unknown;
+    }
+
+    /**
+     * Records a finished case and fills progress and estimates of the status.
+     * Only the first attempt of a case counts. Cases which didn't run, i.e. were skipped or taken from the result cache,
+     * count as done but are left out of the averages.
+     */
+    void update(long caseId, long durationNanos, boolean isRun, long nowNanos, StatusModel status) {
+        if (completed.add(caseId)) {
+            if (isRun) {
+                sampled++;
+                double durationMillis = durationNanos / 1e6;
+                averageDuration = sampled == 1 ? durationMillis : ALPHA * durationMillis + (1 - ALPHA) * averageDuration;
+                double intervalMillis = (nowNanos - lastFinishNanos) / 1e6;
+                averageInterval = sampled == 1 ? intervalMillis : ALPHA * intervalMillis + (1 - ALPHA) * averageInterval;
+                lastFinishNanos = nowNanos;
+            }
+
+            Double expected = expectedDurations.get(caseId);
+            if (expected != null)
+                expectedKnownDone += expected;
+            else
+                unknownDone++;
+        }
+
+        // cases without history are assumed to take as long as the recent average
+        double total = expectedKnownTotal + unknownTotal * averageDuration;
+        double done = expectedKnownDone + unknownDone * averageDuration;
+        float progress = total > 0 ? (float)Math.min(1, done / total) : 1;
+
+        long elapsedMillis = (nowNanos - startNanos) / 1000000L;
+        status.progress = progress;
+        status.elapsedTime = elapsedMillis;
+        // elapsed time rather than summed case durations, so that parallel execution is accounted for
+        status.remainingTime = progress > 0 ? (Long)Math.round(elapsedMillis * (1d - progress) / progress) : null;
+        status.casesPerMinute = averageInterval > 0 ? (float)(60000d / averageInterval) : 0;
+
+        double overallInterval = elapsedMillis / (double)sampled;
+        status.throughputDropped = sampled >= DROP_MIN_CASES && averageInterval * DROP_RATIO > overallInterval;
+    }
+}
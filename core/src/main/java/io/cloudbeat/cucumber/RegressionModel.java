@@ -0,0 +1,11 @@
+package io.cloudbeat.cucumber;
+
+public class RegressionModel {
+    public long caseId;
+    public String caseName;
+    public String stepName;
+    public Integer stepOrder;
+    public long duration;
+    public long baselineDuration;
+    public Double zScore;
+}
@@ -0,0 +1,147 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Dictionary;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Passed cases of previous runs for incremental runs, keyed by a hash of the scenario's pickle (name, tags, steps and
+ * their arguments) and the glue fingerprint, so that a change of either runs the scenario again.
+ * <p>
+ * Stored as a JSON object of key to {@code {"runId": ..., "case": ...}}, with the case as written to the results.
+ */
+final class ResultCache {
+    // entries not used by the current run are dropped once the cache grows above this
+    private static final int MAX_ENTRIES = 20000;
+
+    private final Path path;
+    private final String glueFingerprint;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new SimpleModule().addAbstractTypeMapping(Dictionary.class, Hashtable.class))
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final Map<String, ObjectNode> entries = new LinkedHashMap<>();
+    private final Set<String> used = new HashSet<>();
+    private boolean isModified;
+
+    ResultCache(Path path, String glueFingerprint) {
+        this.path = path;
+        this.glueFingerprint = glueFingerprint;
+    }
+
+    /**
+     * Reads the cache file. A missing file results in an empty cache. Files in a binary {@link ResultEncoding} are read as well.
+     */
+    synchronized void load() throws IOException {
+        if (!Files.exists(path))
+            return;
+        byte[] data = Files.readAllBytes(path);
+        JsonNode root = ResultEncoding.detect(data).createMapper().readTree(data);
+        if (root == null || !root.isObject())
+            throw new IOException("Unsupported result cache format: " + path);
+        Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isObject())
+                entries.put(field.getKey(), (ObjectNode)field.getValue());
+        }
+    }
+
+    /**
+     * @param pickleText canonical text of the scenario, see {@link ResultReporter#checkResultCache}
+     */
+    String getKey(String pickleText) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(glueFingerprint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte)0);
+            byte[] hash = digest.digest(pickleText.getBytes(StandardCharsets.UTF_8));
+            return String.format("%0" + (hash.length * 2) + "x", new BigInteger(1, hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns a copy of the cached case marked with {@code cached} and {@code cachedRunId} stats, or null.
+     */
+    synchronized CaseModel get(String key) {
+        ObjectNode entry = entries.get(key);
+        if (entry == null)
+            return null;
+        CaseModel caze;
+        try {
+            caze = mapper.treeToValue(entry.get("case"), CaseModel.class);
+        } catch (IOException e) {
+            // written by an incompatible version
+            entries.remove(key);
+            isModified = true;
+            return null;
+        }
+        used.add(key);
+        if (caze.stats == null)
+            caze.stats = new Hashtable<>();
+        caze.stats.put("cached", "true");
+        if (entry.hasNonNull("runId"))
+            caze.stats.put("cachedRunId", entry.get("runId").textValue());
+        return caze;
+    }
+
+    synchronized void put(String key, String runId, CaseModel caze) {
+        ObjectNode entry = mapper.createObjectNode();
+        entry.put("runId", runId);
+        entry.set("case", mapper.valueToTree(caze));
+        entries.put(key, entry);
+        used.add(key);
+        isModified = true;
+    }
+
+    synchronized boolean isModified() {
+        return isModified;
+    }
+
+    /**
+     * Writes entries used by this run plus as many of the remaining old entries as fit, replacing the cache file.
+     */
+    synchronized void save() throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        for (String key : used) {
+            if (entries.containsKey(key))
+                root.set(key, entries.get(key));
+        }
+        for (Map.Entry<String, ObjectNode> entry : entries.entrySet()) {
+            if (root.size() >= MAX_ENTRIES)
+                break;
+            if (!root.has(entry.getKey()))
+                root.set(entry.getKey(), entry.getValue());
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            mapper.writeValue(out, root);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        isModified = false;
+    }
+}
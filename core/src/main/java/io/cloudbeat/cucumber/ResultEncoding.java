@@ -0,0 +1,61 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Encodings of the results file and of test monitor reports, set with the {@code resultformat} and {@code reportformat} system properties.
+ * Binary encodings write screenshots as raw bytes instead of Base64.
+ */
+enum ResultEncoding {
+    JSON("json", "application/json; charset=UTF-8"),
+    SMILE("smile", "application/x-jackson-smile"),
+    CBOR("cbor", "application/cbor");
+
+    private final String value;
+    private final String contentType;
+
+    ResultEncoding(final String newValue, final String newContentType) {
+        value = newValue;
+        contentType = newContentType;
+    }
+
+    public String getValue() { return value; }
+
+    public String getContentType() { return contentType; }
+
+    ObjectMapper createMapper() {
+        switch (this) {
+            case SMILE:
+                return new ObjectMapper(new SmileFactory());
+            case CBOR:
+                return new ObjectMapper(new CBORFactory());
+            default:
+                return new ObjectMapper();
+        }
+    }
+
+    /**
+     * Detects the encoding of a results file from its first bytes, so files written with any {@code resultformat} can be read back.
+     */
+    static ResultEncoding detect(byte[] data) {
+        if (data.length >= 3 && data[0] == ':' && data[1] == ')' && data[2] == '\n')
+            return SMILE;
+        if (data.length > 0) {
+            int first = data[0] & 0xff;
+            // a map or the self-describe tag, JSON starts with '{', whitespace or a BOM
+            if ((first & 0xe0) == 0xa0 || (data.length >= 3 && first == 0xd9 && (data[1] & 0xff) == 0xd9 && (data[2] & 0xff) == 0xf7))
+                return CBOR;
+        }
+        return JSON;
+    }
+
+    static ResultEncoding fromValue(String value) {
+        for (ResultEncoding encoding : values()) {
+            if (encoding.value.equalsIgnoreCase(value))
+                return encoding;
+        }
+        return null;
+    }
+}
@@ -12,5 +12,7 @@ public class ResultModel extends TestResultBase {
     public int totalCases;
     public FailureModel failure;
     public List<SuiteModel> suites;
+    public List<RegressionModel> regressions;
+    public MemorySummaryModel memory;
     public String runId;
 }
@@ -0,0 +1,971 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Framework neutral part of the plugin: reads the payload, reports case statuses to the test monitor and
+ * converts the collected Cucumber JSON-like feature maps into the results file.
+ * Cucumber version specific adapters build the feature maps from their respective event APIs.
+ */
+public final class ResultReporter {
+    private PayloadModel payload;
+    private ResultModel result;
+    private String testMonitorStatusUrl;
+    private String testMonitorToken;
+    private BaselineIndex baseline;
+    private TraceRecorder trace;
+    private ProgressEstimator estimator;
+    private boolean isThroughputDropped = false;
+    private String tracePath;
+    private long startNanos;
+    private boolean failOnRegression = false;
+    private DetailLevel detailLevel = DetailLevel.FULL;
+    private ConsoleCapture capture;
+    private ObjectMapper resultMapper;
+    private volatile ObjectMapper reportMapper;
+    private volatile ResultEncoding reportEncoding = ResultEncoding.JSON;
+    private final ObjectMapper responseMapper = new ObjectMapper().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    private Heartbeat heartbeat;
+    private CircuitBreaker breaker;
+    private MemorySample runStartMemory;
+    private ResultCache resultCache;
+    private volatile float lastProgress;
+    private boolean isInitialized = false;
+    private int currentCaseIndex = 1;
+    private int iteration = 1;
+    private final Set<String> failedLocations = new LinkedHashSet<>();
+    private final Map<Long, int[]> iterationCounts = new HashMap<>();
+    private final List<Map<String, Object>> previousFeatureMaps = new ArrayList<>();
+    private static ResultReporter session;
+    private final static String TEST_RESULTS_FILENAME = ".CB_TEST_RESULTS";
+    private final static String ERR_CUCUMBER_ERROR = "CUCUMBER_ERROR";
+    private final static String ERR_CIRCUIT_BREAKER = "CIRCUIT_BREAKER";
+    private final static int MEMORY_SUMMARY_TOP_CASES = 10;
+    private final static String CACHED_REASON = "Result taken from the result cache";
+
+    public ResultReporter() {
+        String payloadpath = System.getProperty("payloadpath");
+        String testmonitorurl = System.getProperty("testmonitorurl");
+        testMonitorToken = System.getProperty("testmonitortoken");
+
+        if (payloadpath != null && testmonitorurl != null && testMonitorToken != null) {
+            testMonitorStatusUrl = testmonitorurl + "/status";
+
+            try {
+                payload = PayloadModel.Load(payloadpath);
+                // pre-init results object
+                result = new ResultModel();
+                result.runId = payload.runId;
+                result.instanceId = payload.instanceId;
+                result.capabilities = payload.capabilities;
+                result.metadata = payload.metadata;
+                result.environmentVariables = payload.environmentVariables;
+                result.startTime = new Date();
+                startNanos = System.nanoTime();
+
+                if (result.capabilities.containsKey("browserName")) {
+                    // remove "technology" prefix from the browserName. old CB version uses technology.browser as browserName
+                    // FIXME: this should be removed once CB backend is adapted to send only the browser name without technology prefix.
+                    String browserName = result.capabilities.get("browserName");
+                    int browserNameIdx = browserName.indexOf('.');
+                    if (browserNameIdx > 0)
+                        browserName = browserName.substring(browserNameIdx + 1);
+                    System.setProperty("browserName", browserName);
+                } else {
+                    logError("Plugin will be disabled. browserName is not specified in capabilities.");
+                }
+
+                String baselinepath = System.getProperty("baselinepath");
+                if (baselinepath != null)
+                    loadBaseline(baselinepath);
+
+                estimator = new ProgressEstimator(startNanos, payload.cases.values(), baseline);
+
+                String detaillevel = System.getProperty("detaillevel");
+                if (detaillevel != null) {
+                    detailLevel = DetailLevel.fromValue(detaillevel);
+                    if (detailLevel == null) {
+                        logError("Invalid value for detaillevel: " + detaillevel + ". Using default " + DetailLevel.FULL.getValue());
+                        detailLevel = DetailLevel.FULL;
+                    }
+                }
+
+                resultMapper = getEncodingProperty("resultformat").createMapper();
+                reportEncoding = getEncodingProperty("reportformat");
+                reportMapper = reportEncoding.createMapper();
+
+                long heartbeatInterval = (long)(getDoubleProperty("heartbeatinterval", 0) * 1000);
+                if (heartbeatInterval > 0)
+                    heartbeat = new Heartbeat(heartbeatInterval, this::sendHeartbeat);
+
+                double breakerFailureRate = getDoubleProperty("circuitbreakerrate", 0);
+                int breakerSameErrors = (int)getDoubleProperty("circuitbreakererrors", 0);
+                if (breakerFailureRate > 0 || breakerSameErrors > 0)
+                    breaker = new CircuitBreaker((int)getDoubleProperty("circuitbreakerwindow", 20, 1), breakerFailureRate, breakerSameErrors);
+
+                String resultcachepath = System.getProperty("resultcachepath");
+                if (resultcachepath != null)
+                    loadResultCache(resultcachepath, System.getProperty("gluefingerprint"));
+
+                if (Boolean.getBoolean("memorystats"))
+                    runStartMemory = MemorySample.take();
+
+                if (Boolean.getBoolean("capturelog"))
+                    capture = ConsoleCapture.install((int)(getDoubleProperty("capturelogsize", 16, 1 / 1024d) * 1024));
+
+                tracePath = System.getProperty("tracepath");
+                if (tracePath != null)
+                    trace = new TraceRecorder(startNanos);
+
+                CucumberRunner.setCanceled(false);
+                CucumberRunner.setSkipReason(null);
+                isInitialized = true;
+            } catch (Exception e) {
+                logError("Plugin will be disabled. Unable to read/deserialize payload file.", e);
+            }
+        } else {
+            logInfo("Plugin will be disabled. One of payloadpath, testmonitorurl, or testmonitortoken parameters is missing.");
+        }
+    }
+
+    /**
+     * Returns the reporter of the running {@link CucumberRunner#runWithRerun} session, so that all attempts end up
+     * in the same results, or a new reporter when there is no such session.
+     */
+    public static synchronized ResultReporter create() {
+        return session != null ? session : new ResultReporter();
+    }
+
+    static synchronized ResultReporter beginSession() {
+        session = new ResultReporter();
+        return session;
+    }
+
+    static synchronized void endSession() {
+        session = null;
+    }
+
+    /**
+     * Starts the next attempt.
+     * @return locations ({@code uri:line}) of the cases which failed in the previous attempt
+     */
+    synchronized List<String> nextIteration() {
+        List<String> locations = new ArrayList<>(failedLocations);
+        failedLocations.clear();
+        iteration++;
+        return locations;
+    }
+
+    private void loadBaseline(String baselinepath) {
+        try {
+            baseline = BaselineIndex.Load(baselinepath);
+            baseline.setRelativeThreshold(getDoubleProperty("regressionthreshold", 0.5));
+            baseline.setZScoreThreshold(getDoubleProperty("regressionzscore", 0));
+            baseline.setMinDifference((long)getDoubleProperty("regressionmindiff", 50));
+            failOnRegression = Boolean.getBoolean("failonregression");
+            logInfo("Loaded baseline from " + baseline.getRunCount() + " previous run(s)");
+            if (getDoubleProperty("regressionzscore", 0) > 0 && baseline.getRunCount() < 2)
+                logInfo("regressionzscore needs at least 2 baseline runs, regressionthreshold will be used instead");
+        } catch (IOException e) {
+            baseline = null;
+            logError("Performance regression detection will be disabled. Unable to read baseline results.", e);
+        }
+    }
+
+    private void loadResultCache(String resultcachepath, String glueFingerprint) {
+        if (glueFingerprint == null || glueFingerprint.isEmpty()) {
+            logError("Incremental mode will be disabled. gluefingerprint is required along with resultcachepath.");
+            return;
+        }
+        resultCache = new ResultCache(Paths.get(resultcachepath), glueFingerprint);
+        try {
+            resultCache.load();
+        } catch (IOException e) {
+            // start over with an empty cache, the file is replaced at the end of the run
+            logError("Unable to read result cache " + resultcachepath + ": " + e.getMessage());
+        }
+    }
+
+    public boolean isInitialized() {
+        return isInitialized;
+    }
+
+    /**
+     * Returns true once the test monitor has answered a status report with a canceling or canceled run status.
+     * Adapters don't record scenarios started after that, see {@link CucumberRunner#skipIfNeeded()}.
+     */
+    public boolean isCanceled() {
+        return CucumberRunner.isCanceled();
+    }
+
+    /**
+     * Returns the trace recorder or null if tracing is disabled.
+     */
+    public TraceRecorder getTrace() {
+        return trace;
+    }
+
+    /**
+     * Marks the end of a case for heartbeats and {@link CucumberRunner#skipIfNeeded()}. Must be called from the thread running the case.
+     * @param caseAttributes gets the {@code skip_reason} if {@link CucumberRunner#skipIfNeeded()} skipped the case, to be put into its scenario map
+     */
+    public void caseFinished(Map<String, Object> caseAttributes) {
+        if (heartbeat != null)
+            heartbeat.caseFinished();
+        CucumberRunner.setScenarioSkipReason(null);
+        String skipReason = CucumberRunner.takeThrownSkipReason();
+        if (skipReason != null)
+            caseAttributes.put("skip_reason", skipReason);
+    }
+
+    /**
+     * Reports status of a finished case to the test monitor and feeds the circuit breaker.
+     * Doesn't depend on the thread it's called from, see {@link #caseFinished(Map)} for the part that does.
+     * @param scenarioDesignation Cucumber scenario designation, e.g. {@code features/my.feature:12 # Scenario name}
+     * @param location feature uri and line the case can be rerun from, e.g. {@code classpath:features/my.feature:12}
+     * @param scenario scenario map with {@code name}, {@code steps}, {@code start_timestamp} and {@code end_timestamp}, not collapsed yet
+     */
+    public synchronized void reportCaseStatus(String scenarioDesignation, String location, Map<String, Object> scenario) {
+        List<Map<String, Object>> steps = (List<Map<String, Object>>)scenario.get("steps");
+        ResultStatus caseStatus = getCaseStatus(steps);
+        String errorMessage = getErrorMessage(steps);
+        long startNanos = (long)scenario.get("start_timestamp");
+        long endNanos = (long)scenario.get("end_timestamp");
+        long durationNanos = endNanos - startNanos;
+        CaseModel cachedCase = (CaseModel)scenario.get("cached_case");
+        // skipped by CucumberRunner.skipIfNeeded, other skipped cases count as failed
+        boolean isCached = cachedCase != null && caseStatus == ResultStatus.Skipped;
+        if (isCached)
+            caseStatus = cachedCase.status;
+        boolean isPassed = caseStatus == ResultStatus.Passed;
+        boolean isSkipped = !isCached && isSkippedByBreaker(scenario);
+        if (!isPassed && !isSkipped)
+            failedLocations.add(location);
+
+        StatusModel status = new StatusModel();
+
+        status.status = StatusModel.Statuses.Running.getValue();
+        status.instanceId = payload.instanceId;
+        status.runId = payload.runId;
+        status.caze = new StatusModel.CaseStatus();
+
+        String cucumberId = getCucumberScenarioId(scenarioDesignation);
+
+        PayloadModel.Case caseDefinition = payload.cases.get(cucumberId);
+        if (caseDefinition == null) {
+            logError("Cannot find matching case in the payload: " + cucumberId + ". Test case status won't be reported.");
+            return;
+        }
+
+        status.caze.id = caseDefinition.id;
+        status.caze.progress = 1;
+        status.caze.name = (String)scenario.get("name");
+        int[] counts = getIterationCounts(caseDefinition.id);
+        if (isSkipped)
+            status.caze.failures = Collections.singletonList(createBreakerFailure());
+        else
+            counts[isPassed ? 1 : 2]++;
+        status.caze.order = counts[0];
+        status.caze.iterationsPassed = counts[1];
+        status.caze.iterationsFailed = counts[2];
+        status.caze.elapsedTime = durationNanos / 1000000L;
+
+        estimator.update(caseDefinition.id, durationNanos, !isSkipped && !isCached, System.nanoTime(), status);
+        lastProgress = status.progress;
+        if (status.throughputDropped && !isThroughputDropped)
+            logInfo("Throughput dropped to " + Math.round(status.casesPerMinute) + " cases per minute");
+        isThroughputDropped = status.throughputDropped;
+
+        long reportStart = System.nanoTime();
+        if (report(testMonitorStatusUrl, status))
+            logInfo("Status report for '" + cucumberId + "' has been sent");
+        if (trace != null)
+            trace.addPluginSpan("reportStatus", reportStart);
+
+        if (breaker != null && !isSkipped && !isCached) {
+            String reason = breaker.recordCase(isPassed, errorMessage);
+            if (reason != null) {
+                CucumberRunner.setSkipReason(reason);
+                logInfo(reason + ". Remaining scenarios will be skipped.");
+            }
+        }
+    }
+
+    /**
+     * Looks up an unchanged scenario in the result cache when incremental mode is enabled. On a hit the scenario is skipped
+     * by {@link CucumberRunner#skipIfNeeded()} and reported from the cached case. Must be called from the thread running the case,
+     * before its hooks run.
+     * @param scenario scenario map, gets the {@code cache_key} and on a hit the {@code cached_case}
+     * @param pickleText canonical text of the scenario: name, tags, steps and their arguments. Only built when the cache is enabled.
+     * @return true on a cache hit
+     */
+    public boolean checkResultCache(Map<String, Object> scenario, Supplier<String> pickleText) {
+        if (resultCache == null)
+            return false;
+        String key = resultCache.getKey(pickleText.get());
+        scenario.put("cache_key", key);
+        CaseModel cachedCase = resultCache.get(key);
+        if (cachedCase == null)
+            return false;
+        scenario.put("cached_case", cachedCase);
+        CucumberRunner.setScenarioSkipReason(CACHED_REASON);
+        return true;
+    }
+
+    /**
+     * Status of a case from its step maps: passed if all steps passed, skipped if all of them were skipped, otherwise failed.
+     */
+    public static ResultStatus getCaseStatus(List<Map<String, Object>> steps) {
+        boolean isPassed = true;
+        boolean isSkipped = true;
+        for (Map<String, Object> step : steps) {
+            Map<String, Object> result = (Map<String, Object>)step.get("result");
+            if (result == null)
+                continue;
+            if (!result.get("status").equals("passed"))
+                isPassed = false;
+            if (!result.get("status").equals("skipped"))
+                isSkipped = false;
+        }
+        return isPassed ? ResultStatus.Passed : isSkipped ? ResultStatus.Skipped : ResultStatus.Failed;
+    }
+
+    /**
+     * Error message of the first step which didn't pass, or null.
+     */
+    public static String getErrorMessage(List<Map<String, Object>> steps) {
+        for (Map<String, Object> step : steps) {
+            Map<String, Object> result = (Map<String, Object>)step.get("result");
+            if (result != null && !result.get("status").equals("passed"))
+                return (String)result.get("error_message");
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if {@link CucumberRunner#skipIfNeeded()} skipped the case because the circuit breaker was open,
+     * also when the case started before the breaker opened.
+     */
+    private boolean isSkippedByBreaker(Map<String, Object> scenario) {
+        String openReason = breaker != null ? breaker.getOpenReason() : null;
+        return openReason != null && openReason.equals(scenario.get("skip_reason")) && isScenarioSkipped(scenario);
+    }
+
+    private static boolean isScenarioSkipped(Map<String, Object> scenario) {
+        if (Boolean.TRUE.equals(scenario.get("summary")))
+            return "skipped".equals(scenario.get("status"));
+        return getCaseStatus((List<Map<String, Object>>)scenario.get("steps")) == ResultStatus.Skipped;
+    }
+
+    private FailureModel createBreakerFailure() {
+        FailureModel failure = new FailureModel();
+        failure.type = ERR_CIRCUIT_BREAKER;
+        failure.message = breaker.getOpenReason();
+        return failure;
+    }
+
+    /**
+     * Marks the start of a case for heartbeats. Must be called from the thread running the case.
+     * @param stepCount number of steps of the case, hooks excluded
+     */
+    public void caseStarted(String scenarioDesignation, String name, int stepCount) {
+        if (heartbeat == null)
+            return;
+        PayloadModel.Case caseDefinition = payload.cases.get(getCucumberScenarioId(scenarioDesignation));
+        if (caseDefinition != null)
+            heartbeat.caseStarted(new Heartbeat.RunningCase(caseDefinition.id, name, System.nanoTime(), stepCount));
+    }
+
+    /**
+     * Marks the start of a step or hook for heartbeats and console log capture. Must be called from the thread running the step.
+     */
+    public void stepStarted(boolean isHook) {
+        if (heartbeat != null && !isHook)
+            heartbeat.stepStarted();
+        if (capture != null)
+            capture.markStep();
+    }
+
+    // order in which the case was first reported, passed and failed attempts so far
+    private int[] getIterationCounts(long caseId) {
+        return iterationCounts.computeIfAbsent(caseId, id -> new int[] { currentCaseIndex++, 0, 0 });
+    }
+
+    private void sendHeartbeat(Heartbeat.RunningCase runningCase, long nowNanos) {
+        StatusModel status = createHeartbeatStatus(runningCase, nowNanos);
+        if (status == null)
+            return;
+        // not under the reporter's monitor, the final status of the case waits for this update instead, see Heartbeat.RunningCase
+        synchronized (runningCase) {
+            if (runningCase.isFinished)
+                return;
+            long reportStart = System.nanoTime();
+            report(testMonitorStatusUrl, status);
+            if (trace != null)
+                trace.addPluginSpan("heartbeat", reportStart);
+        }
+    }
+
+    private synchronized StatusModel createHeartbeatStatus(Heartbeat.RunningCase runningCase, long nowNanos) {
+        if (runningCase.isFinished)
+            return null;
+        StatusModel status = new StatusModel();
+        status.status = StatusModel.Statuses.Running.getValue();
+        status.instanceId = payload.instanceId;
+        status.runId = payload.runId;
+        status.progress = lastProgress;
+        status.elapsedTime = (nowNanos - startNanos) / 1000000L;
+        status.caze = new StatusModel.CaseStatus();
+        status.caze.id = runningCase.caseId;
+        status.caze.name = runningCase.name;
+        // the order is assigned when the case is reported as finished, 0 until then
+        int[] counts = iterationCounts.get(runningCase.caseId);
+        if (counts != null) {
+            status.caze.order = counts[0];
+            status.caze.iterationsPassed = counts[1];
+            status.caze.iterationsFailed = counts[2];
+        }
+        int stepIndex = runningCase.stepIndex;
+        status.caze.currentStep = stepIndex;
+        // steps before the running one are done
+        status.caze.progress = runningCase.stepCount > 0 ? Math.max(0, stepIndex - 1) / (float)runningCase.stepCount : 0;
+        status.caze.elapsedTime = (nowNanos - runningCase.startNanos) / 1000000L;
+        return status;
+    }
+
+    /**
+     * Samples heap, GC and the allocations of the calling thread, or returns null if memory stats are disabled.
+     * Adapters put the samples taken when a case starts and finishes into its scenario map as {@code start_memory} and {@code end_memory}.
+     */
+    public MemorySample sampleMemory() {
+        return runStartMemory != null ? MemorySample.take() : null;
+    }
+
+    /**
+     * Returns the console output of the current step of the calling thread, or null if capture is disabled or nothing was written.
+     */
+    public String getStepLog() {
+        return capture != null ? capture.getStepOutput() : null;
+    }
+
+    /**
+     * Reduces a finished scenario map to a summary (name, id, status, duration and first error message) if the
+     * detail level says its steps are not needed. Should be called right after the case finished, so that step
+     * details don't stay in memory until the end of the run.
+     * @return true if the scenario map was reduced, in which case its background element can be dropped as well
+     */
+    public boolean collapseCase(Map<String, Object> scenario) {
+        if (detailLevel == DetailLevel.FULL)
+            return false;
+
+        List<Map<String, Object>> steps = (List<Map<String, Object>>)scenario.get("steps");
+        ResultStatus caseStatus = getCaseStatus(steps);
+        if (caseStatus != ResultStatus.Passed && detailLevel == DetailLevel.FAILURES_ONLY)
+            return false;
+        String errorMessage = getErrorMessage(steps);
+        long duration = 0;
+        for (Map<String, Object> cucStep : steps) {
+            Map<String, Object> cucStepResult = (Map<String, Object>)cucStep.get("result");
+            // same rounding as for full cases
+            if (cucStepResult != null && cucStepResult.containsKey("duration"))
+                duration += (long)((long)cucStepResult.get("duration") / 1000000d);
+        }
+
+        scenario.remove("steps");
+        scenario.remove("before");
+        scenario.remove("after");
+        scenario.put("summary", true);
+        scenario.put("status", caseStatus.name().toLowerCase(Locale.ROOT));
+        scenario.put("duration", duration);
+        if (errorMessage != null)
+            scenario.put("error_message", errorMessage);
+        return true;
+    }
+
+    /**
+     * Builds the results from Cucumber JSON-like feature maps and writes them to the results file.
+     * Scenario maps are expected to carry {@code cucumberId}, {@code name}, {@code steps} and optionally
+     * {@code start_timestamp}/{@code end_timestamp} ({@link System#nanoTime()} based) and {@code after} hooks.
+     * Step maps can carry a {@code screenshot} (PNG bytes) and a console {@code log} taken when the step failed,
+     * step and hook maps {@code embeddings} with their raw {@code data}.
+     * Memory samples of the scenario ({@link #sampleMemory()}) end up in the case stats and the run's memory summary.
+     * Scenario maps reduced by {@link #collapseCase(Map)} become cases without steps.
+     * Within a {@link CucumberRunner#runWithRerun} session this is called once per attempt and the results cover all attempts so far.
+     */
+    public synchronized void finishReport(List<Map<String, Object>> featureMaps) {
+        long finishStart = System.nanoTime();
+        if (heartbeat != null)
+            heartbeat.stop();
+        for (Map<String, Object> feature : featureMaps) {
+            for (Map<String, Object> scenario : (List<Map<String, Object>>)feature.get("elements"))
+                scenario.put("iteration", iteration);
+        }
+        previousFeatureMaps.addAll(featureMaps);
+        writeResults(previousFeatureMaps);
+        if (isCanceled())
+            reportCanceled();
+        if (resultCache != null && resultCache.isModified()) {
+            try {
+                resultCache.save();
+            } catch (IOException e) {
+                logError("Unable to write result cache: " + e.getMessage());
+            }
+        }
+        if (trace != null) {
+            trace.addPluginSpan("finishReport", finishStart);
+            try {
+                trace.write(tracePath);
+            } catch (IOException e) {
+                logError("Failed to write trace to " + tracePath, e);
+            }
+        }
+    }
+
+    private void writeResults(List<Map<String, Object>> featureMaps) {
+        result.endTime = new Date();
+        result.duration = (result.endTime.getTime() -  result.startTime.getTime()) / 1000L;
+
+        result.suites = new ArrayList<>();
+
+        SuiteModel suite = new SuiteModel();
+        result.suites.add(suite);
+
+        suite.cases = new ArrayList<>();
+        List<MemorySummaryModel.CaseMemory> caseMemory = new ArrayList<>();
+        // cases which ran in incremental mode, by cache key
+        Map<String, CaseModel> cacheableCases = new LinkedHashMap<>();
+
+        for (Map<String, Object> feature : featureMaps) {
+            List<Map<String, Object>> scenarios = (List<Map<String, Object>>)feature.get("elements");
+
+            for (Map<String, Object> scenario : scenarios) {
+                // background steps are reported as part of their own element which has no matching case
+                if ("background".equals(scenario.get("type")))
+                    continue;
+
+                String cucumberId = (String)scenario.get("cucumberId");
+
+                PayloadModel.Case caseDefinition = payload.cases.get(cucumberId);
+                if (caseDefinition == null) {
+                    logError("Cannot find matching case in the payload: " + cucumberId + ". Test case result for this case won't be included in the report.");
+                    continue;
+                }
+
+                CaseModel caze = new CaseModel();
+                suite.cases.add(caze);
+
+                caze.id = caseDefinition.id;
+                caze.name = (String)scenario.get("name");
+
+
+                caze.iterationNum = (int)scenario.getOrDefault("iteration", 1);
+                caze.startTime = toDate(scenario.get("start_timestamp"));
+                caze.endTime = toDate(scenario.get("end_timestamp"));
+
+                CaseModel cachedCase = (CaseModel)scenario.get("cached_case");
+                if (cachedCase != null && isScenarioSkipped(scenario)) {
+                    // not run, the cached case describes the run it comes from
+                    caze.status = cachedCase.status;
+                    caze.startTime = cachedCase.startTime;
+                    caze.endTime = cachedCase.endTime;
+                    caze.duration = cachedCase.duration;
+                    caze.steps = cachedCase.steps;
+                    caze.stats = cachedCase.stats;
+                    continue;
+                }
+                if (scenario.containsKey("cache_key"))
+                    cacheableCases.put((String)scenario.get("cache_key"), caze);
+
+                MemorySample startMemory = (MemorySample)scenario.get("start_memory");
+                MemorySample endMemory = (MemorySample)scenario.get("end_memory");
+                if (startMemory != null && endMemory != null) {
+                    caze.stats = new Hashtable<>();
+                    MemorySummaryModel.CaseMemory memory = endMemory.putDeltas(startMemory, caze.stats);
+                    memory.caseId = caze.id;
+                    memory.caseName = caze.name;
+                    memory.iterationNum = caze.iterationNum;
+                    caseMemory.add(memory);
+                }
+
+                if (isSkippedByBreaker(scenario)) {
+                    caze.status = ResultStatus.Skipped;
+                    caze.failure = createBreakerFailure();
+                    continue;
+                }
+
+                if (Boolean.TRUE.equals(scenario.get("summary"))) {
+                    boolean isSuccess = "passed".equals(scenario.get("status"));
+                    caze.status = isSuccess ? ResultStatus.Passed : ResultStatus.Failed;
+                    caze.duration = (long)scenario.get("duration");
+                    if (!isSuccess) {
+                        caze.failure = new FailureModel();
+                        caze.failure.type = ERR_CUCUMBER_ERROR;
+                        caze.failure.message = scenario.containsKey("error_message") ? (String)scenario.get("error_message") : "See console log for more details";
+                    }
+                    continue;
+                }
+
+                caze.steps = new ArrayList<>();
+
+                boolean isSuccess = true;
+                short order = 0;
+                long caseDuration = 0;
+                for (Map<String, Object> cucStep : (List<Map<String, Object>>)scenario.get("steps")) {
+                    Map<String, Object> cucStepResult = (Map<String, Object>)cucStep.get("result");
+
+                    FailureModel failure = null;
+
+                    boolean stepStatus = cucStepResult.get("status").equals("passed");
+                    if (!stepStatus) {
+                        isSuccess = false;
+                        failure = new FailureModel();
+                        failure.type = ERR_CUCUMBER_ERROR;
+                        // error_message won't be always present. For example it's not present on "skipped" (e.g. unimplemented) steps
+                        if (cucStepResult.containsKey("error_message")){
+                            failure.message = (String)cucStepResult.get("error_message");
+                        }
+                        else
+                            failure.message = "See console log for more details";
+                        // console output of the step, when captured
+                        failure.data = (String)cucStep.get("log");
+                    }
+
+                    StepModel step = new StepModel();
+
+                    step.name = (String)cucStep.get("name");
+                    step.order = order;
+                    step.status = stepStatus ? ResultStatus.Passed : ResultStatus.Failed;
+
+                    if (!isSuccess) {
+                        byte[] embeddedScreenshot = getEmbeddedScreenshot(scenario, cucStep);
+                        if (embeddedScreenshot != null) {
+                            step.screenShot = embeddedScreenshot;
+                        } else if (cucStep.containsKey("screenshot")) {
+                            // taken by the adapter when the step failed
+                            step.screenShot = (byte[])cucStep.get("screenshot");
+                        } else {
+                            step.screenShot = takeScreenshot();
+                            // results are written again after each rerun attempt
+                            cucStep.put("screenshot", step.screenShot);
+                        }
+                    }
+
+                    step.startTime = toDate(cucStep.get("start_timestamp"));
+                    step.endTime = toDate(cucStep.get("end_timestamp"));
+
+                    if (cucStepResult.containsKey("duration"))
+                        step.duration = (long)((long)cucStepResult.get("duration") / 1000000d);
+
+                    step.failure = failure;
+                    caze.steps.add(step);
+                    caseDuration += step.duration;
+
+                    order++;
+                }
+
+                caze.status = isSuccess ? ResultStatus.Passed : ResultStatus.Failed;
+                caze.duration = caseDuration;
+            }
+        }
+
+        if (resultCache != null) {
+            for (Map.Entry<String, CaseModel> entry : cacheableCases.entrySet()) {
+                if (entry.getValue().status == ResultStatus.Passed)
+                    resultCache.put(entry.getKey(), result.runId, entry.getValue());
+            }
+        }
+
+        // only the last attempt of each case counts
+        Map<Long, CaseModel> lastIterations = new LinkedHashMap<>();
+        for (CaseModel caze : suite.cases) {
+            CaseModel last = lastIterations.get(caze.id);
+            if (last == null || last.iterationNum < caze.iterationNum)
+                lastIterations.put(caze.id, caze);
+        }
+
+        boolean isSuccess = true;
+        for (CaseModel caze : lastIterations.values()) {
+            if (caze.status == ResultStatus.Failed) {
+                        isSuccess = false;
+            }
+        }
+
+        suite.status = isSuccess ? ResultStatus.Passed : ResultStatus.Failed;
+        // partial results, cases started after the cancellation are not included
+        result.status = isCanceled() ? ResultStatus.Canceled : isSuccess ? ResultStatus.Passed : ResultStatus.Failed;
+
+        if (baseline != null)
+            compareWithBaseline(new ArrayList<>(lastIterations.values()));
+
+        if (runStartMemory != null)
+            result.memory = MemorySample.take().summarize(runStartMemory, caseMemory, MEMORY_SUMMARY_TOP_CASES);
+
+        if (breaker != null && breaker.getOpenReason() != null && result.failure == null) {
+            result.failure = createBreakerFailure();
+        }
+
+        long serializeStart = System.nanoTime();
+        byte[] resultBytes;
+        try {
+            resultBytes = resultMapper.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            logError("Failed to serialize results.", e);
+            return;
+        }
+        if (trace != null)
+            trace.addPluginSpan("serializeResults", serializeStart);
+
+        long writeStart = System.nanoTime();
+        try (OutputStream out = new FileOutputStream(TEST_RESULTS_FILENAME)) {
+            out.write(resultBytes);
+        } catch (IOException e) {
+            logError("Failed to create " + TEST_RESULTS_FILENAME, e);
+        }
+        if (trace != null)
+            trace.addPluginSpan("writeResults", writeStart);
+    }
+
+    private void reportCanceled() {
+        StatusModel status = new StatusModel();
+        status.status = StatusModel.Statuses.Canceled.getValue();
+        status.instanceId = payload.instanceId;
+        status.runId = payload.runId;
+        status.progress = lastProgress;
+        status.elapsedTime = (System.nanoTime() - startNanos) / 1000000L;
+        if (report(testMonitorStatusUrl, status))
+            logInfo("Canceled run status has been sent");
+    }
+
+    private Date toDate(Object timestamp) {
+        if (timestamp == null)
+            return null;
+        return new Date(result.startTime.getTime() + ((long)timestamp - startNanos) / 1000000L);
+    }
+
+    private void compareWithBaseline(List<CaseModel> cases) {
+        result.regressions = baseline.compare(cases);
+        if (baseline.getZScoreFallbackCount() > 0)
+            logInfo("Baseline durations of " + baseline.getZScoreFallbackCount() + " case(s) and step(s) don't vary, regressionthreshold was used for them instead of regressionzscore");
+        if (result.regressions.isEmpty())
+            return;
+
+        logInfo("Detected " + result.regressions.size() + " performance regression(s):");
+        for (RegressionModel regression : result.regressions) {
+            String name = regression.stepName == null ? regression.caseName : regression.caseName + " > " + regression.stepName;
+            logInfo("  " + name + ": " + regression.duration + "ms (baseline " + regression.baselineDuration + "ms)");
+        }
+
+        if (failOnRegression) {
+            result.status = ResultStatus.Failed;
+            result.failure = new FailureModel();
+            result.failure.type = BaselineIndex.ERR_PERFORMANCE_REGRESSION;
+            result.failure.message = result.regressions.size() + " performance regression(s) detected compared to the baseline";
+        }
+    }
+
+    public static String getCucumberScenarioId(String caseDesignation) {
+        String[] tokens = caseDesignation.split("/");
+        return tokens[tokens.length-1];
+    }
+
+    /**
+     * Takes a PNG screenshot from the WebDriver session used by the current thread.
+     * Adapters call it when a step fails, while the browser still shows the failure.
+     */
+    public byte[] takeScreenshot() {
+        long screenshotStart = System.nanoTime();
+        byte[] screenshot = takeWebDriverScreenshot();
+        if (trace != null)
+            trace.addPluginSpan("takeScreenshot", screenshotStart);
+        return screenshot;
+    }
+
+    private byte[] takeWebDriverScreenshot() {
+        WebDriver driver = CucumberRunner.getScreenshotWebDriver();
+        if (driver == null || !(driver instanceof TakesScreenshot))
+            return null;
+        try {
+            return ((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES);
+        } catch (RuntimeException e) {
+            logError("Unable to take screenshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Looks for a png embedded by the step itself or by the after hooks of its scenario.
+     */
+    private byte[] getEmbeddedScreenshot(Map<String, Object> scenario, Map<String, Object> cucStep) {
+        if (cucStep.containsKey("embeddings")) {
+            byte[] screenshot = getEmbeddedScreenshot((List<Map<String, Object>>)cucStep.get("embeddings"));
+            if (screenshot != null)
+                return screenshot;
+        }
+        if (scenario.containsKey("after")) {
+            for (Map<String, Object> hook : (List<Map<String, Object>>)scenario.get("after")) {
+                if (hook.containsKey("embeddings")) {
+                    byte[] screenshot = getEmbeddedScreenshot((List<Map<String, Object>>)hook.get("embeddings"));
+                    if (screenshot != null)
+                        return screenshot;
+                }
+            }
+        }
+        return null;
+    }
+
+    private byte[] getEmbeddedScreenshot(List<Map<String, Object>> embeddings) {
+        for (Map<String, Object> embedding : embeddings) {
+            if (embedding.containsKey("mime_type") && embedding.containsKey("data") && "image/png".equals(embedding.get("mime_type"))) {
+                return (byte[])embedding.get("data");
+            }
+        }
+        return null;
+    }
+
+    private boolean report(String endpointUrl, Object data) {
+        HttpURLConnection http = null;
+        ResultEncoding encoding = reportEncoding;
+        try {
+            byte[] out = reportMapper.writeValueAsBytes(data);
+            int length = out.length;
+
+            URL url = new URL(endpointUrl);
+            URLConnection con = url.openConnection();
+            http = (HttpURLConnection) con;
+            http.setRequestMethod("POST");
+            http.setRequestProperty("Authorization", "Bearer " + testMonitorToken);
+            http.setRequestProperty("Content-Type", encoding.getContentType());
+            http.setRequestProperty("Connection", "Close");
+            http.setDoOutput(true);
+            http.setFixedLengthStreamingMode(length);
+            http.connect();
+            try (OutputStream os = http.getOutputStream()) {
+                os.write(out);
+                os.flush();
+            }
+
+            int responseCode = http.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_UNSUPPORTED_TYPE && encoding != ResultEncoding.JSON) {
+                // server doesn't accept the binary encoding, stay with JSON from now on
+                logError("Test monitor doesn't accept " + encoding.getValue() + " reports. Falling back to " + ResultEncoding.JSON.getValue());
+                reportEncoding = ResultEncoding.JSON;
+                reportMapper = ResultEncoding.JSON.createMapper();
+                http.disconnect();
+                http = null;
+                return report(endpointUrl, data);
+            }
+            if (responseCode < 200 || responseCode > 299) {
+                // error responses don't have an input stream, the body is only available through the error stream
+                InputStream errorStream = http.getErrorStream();
+                if (errorStream == null) {
+                    logError("Unable to report to " + endpointUrl + " : " + responseCode);
+                    return false;
+                }
+                // not closed, see checkCanceled. A closed error stream would hand the connection over to the keep-alive cache
+                // although the server closes it, and the next report would fail on it with a connection reset.
+                BufferedReader in = new BufferedReader(new InputStreamReader(errorStream));
+                String inputLine;
+                StringBuffer response = new StringBuffer();
+                while ((inputLine = in.readLine()) != null) {
+                    response.append(inputLine);
+                }
+                logError("Unable to report to " + endpointUrl + " : " + responseCode + " - " + response.toString());
+                return false;
+            }
+            checkCanceled(http);
+        } catch (Exception e) {
+            logError("Unable to report to " + endpointUrl, e);
+            return false;
+        } finally {
+            if (http != null)
+                http.disconnect();
+        }
+
+        return true;
+    }
+
+    /**
+     * Looks for the run {@code status} in a JSON reply of the test monitor, e.g. <code>{"status":4}</code>.
+     */
+    private void checkCanceled(HttpURLConnection http) {
+        String contentType = http.getContentType();
+        if (contentType == null || !contentType.contains("json"))
+            return;
+        JsonNode reply;
+        // the stream is left open on purpose, closing it would hand the connection over to the keep-alive cache
+        // instead of disconnect() closing it
+        try {
+            reply = responseMapper.readTree(http.getInputStream());
+        } catch (IOException e) {
+            // the report itself was accepted
+            return;
+        }
+        if (reply == null || !reply.path("status").isInt())
+            return;
+        int status = reply.get("status").intValue();
+        if ((status == StatusModel.Statuses.Canceling.getValue() || status == StatusModel.Statuses.Canceled.getValue()) && !isCanceled()) {
+            CucumberRunner.setCanceled(true);
+            logInfo("Run was canceled by the test monitor. Remaining scenarios will be skipped.");
+        }
+    }
+
+    private double getDoubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            logError("Invalid value for " + name + ": " + value + ". Using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private double getDoubleProperty(String name, double defaultValue, double minValue) {
+        double value = getDoubleProperty(name, defaultValue);
+        if (value < minValue) {
+            logError("Invalid value for " + name + ": " + value + ". Using default " + defaultValue);
+            return defaultValue;
+        }
+        return value;
+    }
+
+    private ResultEncoding getEncodingProperty(String name) {
+        String value = System.getProperty(name);
+        if (value == null)
+            return ResultEncoding.JSON;
+        ResultEncoding encoding = ResultEncoding.fromValue(value);
+        if (encoding == null) {
+            logError("Invalid value for " + name + ": " + value + ". Using default " + ResultEncoding.JSON.getValue());
+            return ResultEncoding.JSON;
+        }
+        return encoding;
+    }
+
+    private void logError(String message) {
+        System.err.println("[CloudBeat] " + message);
+    }
+
+    private void logError(String message, Exception e) {
+        System.err.println("[CloudBeat] " + message);
+        e.printStackTrace();
+    }
+
+    private void logInfo(String message) {
+        System.out.println("[CloudBeat] " + message);
+    }
+}
@@ -3,5 +3,6 @@ package io.cloudbeat.cucumber;
 public enum ResultStatus {
     Passed,
     Failed,
-    Skipped
+    Skipped,
+    Canceled
 }
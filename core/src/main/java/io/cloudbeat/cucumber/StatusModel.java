@@ -27,6 +27,10 @@ public class StatusModel {
     public String instanceId;
     public int status;
     public float progress;
+    public float casesPerMinute;
+    public long elapsedTime;
+    public Long remainingTime;
+    public boolean throughputDropped;
     @JsonProperty("case")
     public CaseStatus caze;
 
@@ -37,6 +41,9 @@ public class StatusModel {
         public int iterationsPassed;
         public int iterationsFailed;
         public float progress;
+        // 1 based index of the running step, only in updates of cases that are still running
+        public Integer currentStep;
+        public Long elapsedTime;
         public List<FailureModel> failures;
     }
 }
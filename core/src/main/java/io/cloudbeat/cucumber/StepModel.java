@@ -11,7 +11,8 @@ public class StepModel extends TestResultBase {
     public String location;
     public Dictionary<String, String> stats;
     public FailureModel failure;
-    public String screenShot;
+    // Base64 in JSON, raw bytes in binary encodings
+    public byte[] screenShot;
     public ArrayList<StepModel> steps;
     public boolean isFinished;
     public int order;
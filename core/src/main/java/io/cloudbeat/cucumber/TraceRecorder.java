@@ -0,0 +1,122 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects timed spans of the run and exports them in Chrome trace-event format (viewable in chrome://tracing or Perfetto).
+ * All timestamps are {@link System#nanoTime()} based, the same clock Cucumber uses for its event timestamps.
+ * Recording methods are thread safe, concurrent adapters record spans from the threads running the scenarios.
+ */
+public final class TraceRecorder {
+    public static final String CATEGORY_CASE = "case";
+    public static final String CATEGORY_STEP = "step";
+    public static final String CATEGORY_HOOK = "hook";
+    public static final String CATEGORY_PLUGIN = "plugin";
+
+    // thread id used for the plugin's own work, scenarios are placed on lanes starting from 1
+    public static final int PLUGIN_THREAD_ID = 0;
+
+    private final long originNanos;
+    private final List<Span> spans = new ArrayList<>();
+    private final List<Long> laneEnds = new ArrayList<>();
+
+    static final class Span {
+        final String name;
+        final String category;
+        final long startNanos;
+        final long endNanos;
+        final int threadId;
+
+        Span(String name, String category, long startNanos, long endNanos, int threadId) {
+            this.name = name;
+            this.category = category;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+            this.threadId = threadId;
+        }
+    }
+
+    TraceRecorder(long originNanos) {
+        this.originNanos = originNanos;
+    }
+
+    /**
+     * Returns the first lane which is free at the given time.
+     * Scenarios are recorded from the runner's threads, whose ids are large and differ between runs,
+     * so overlapping scenarios are placed on the lowest free lane instead and show up as separate threads.
+     */
+    public synchronized int acquireLane(long startNanos) {
+        for (int i = 0; i < laneEnds.size(); i++) {
+            if (laneEnds.get(i) <= startNanos) {
+                laneEnds.set(i, Long.MAX_VALUE);
+                return i + 1;
+            }
+        }
+        laneEnds.add(Long.MAX_VALUE);
+        return laneEnds.size();
+    }
+
+    public synchronized void releaseLane(int lane, long endNanos) {
+        if (lane > 0 && lane <= laneEnds.size())
+            laneEnds.set(lane - 1, endNanos);
+    }
+
+    public synchronized void add(String name, String category, long startNanos, long endNanos, int threadId) {
+        spans.add(new Span(name, category, startNanos, endNanos, threadId));
+    }
+
+    public void addPluginSpan(String name, long startNanos) {
+        add(name, CATEGORY_PLUGIN, startNanos, System.nanoTime(), PLUGIN_THREAD_ID);
+    }
+
+    synchronized void write(String path) throws IOException {
+        JsonFactory factory = new JsonFactory();
+        try (JsonGenerator generator = factory.createGenerator(new File(path), JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("displayTimeUnit", "ms");
+            generator.writeArrayFieldStart("traceEvents");
+
+            writeThreadName(generator, PLUGIN_THREAD_ID, "CloudBeat plugin");
+            for (int i = 1; i <= laneEnds.size(); i++)
+                writeThreadName(generator, i, "Runner " + i);
+
+            for (Span span : spans) {
+                generator.writeStartObject();
+                generator.writeStringField("name", span.name);
+                generator.writeStringField("cat", span.category);
+                generator.writeStringField("ph", "X");
+                generator.writeNumberField("ts", toMicros(span.startNanos - originNanos));
+                generator.writeNumberField("dur", toMicros(span.endNanos - span.startNanos));
+                generator.writeNumberField("pid", 1);
+                generator.writeNumberField("tid", span.threadId);
+                generator.writeEndObject();
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writeThreadName(JsonGenerator generator, int threadId, String name) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", "thread_name");
+        generator.writeStringField("ph", "M");
+        generator.writeNumberField("pid", 1);
+        generator.writeNumberField("tid", threadId);
+        generator.writeObjectFieldStart("args");
+        generator.writeStringField("name", name);
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private static double toMicros(long nanos) {
+        return nanos / 1000d;
+    }
+}
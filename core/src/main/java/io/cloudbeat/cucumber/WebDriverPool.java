@@ -0,0 +1,263 @@
+package io.cloudbeat.cucumber;
+
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of WebDriver sessions. Sessions are leased for a scenario and returned afterwards,
+ * so warm browsers are reused instead of being started for every scenario.
+ * Returned sessions are reset, leased sessions are health checked and sessions idle for too long are quit,
+ * also when no further sessions are leased.
+ */
+public final class WebDriverPool implements AutoCloseable {
+    private final Supplier<WebDriver> factory;
+    private final int maxSize;
+    private long idleTimeoutMillis = 5 * 60 * 1000;
+    private long leaseTimeoutMillis = 10 * 60 * 1000;
+    private Predicate<WebDriver> healthCheck = WebDriverPool::isResponsive;
+    private Consumer<WebDriver> reset = WebDriverPool::deleteCookies;
+
+    // most recently returned sessions first, they are the warmest
+    private final Deque<IdleSession> idle = new ArrayDeque<>();
+    private final Set<WebDriver> leased = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int size;
+    private boolean isClosed;
+    // quits expired idle sessions, started with the first returned session
+    private ScheduledExecutorService evictor;
+
+    private static final class IdleSession {
+        final WebDriver driver;
+        final long idleSince;
+
+        IdleSession(WebDriver driver, long idleSince) {
+            this.driver = driver;
+            this.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * @param factory creates new sessions
+     * @param maxSize maximum number of sessions, leased and idle together
+     */
+    public WebDriverPool(Supplier<WebDriver> factory, int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        this.factory = factory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Idle sessions older than this are quit. Default is 5 minutes.
+     */
+    public WebDriverPool setIdleTimeout(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Maximum time to wait for a free session when the pool is exhausted. Default is 10 minutes.
+     */
+    public WebDriverPool setLeaseTimeout(long leaseTimeoutMillis) {
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Check performed on an idle session before it's leased. Unhealthy sessions are quit and replaced.
+     */
+    public WebDriverPool setHealthCheck(Predicate<WebDriver> healthCheck) {
+        this.healthCheck = healthCheck;
+        return this;
+    }
+
+    /**
+     * Cleanup performed on a session when it's returned. Sessions for which it throws are quit.
+     */
+    public WebDriverPool setReset(Consumer<WebDriver> reset) {
+        this.reset = reset;
+        return this;
+    }
+
+    public WebDriver lease() {
+        long deadline = System.currentTimeMillis() + leaseTimeoutMillis;
+        while (true) {
+            WebDriver candidate = null;
+            boolean canCreate = false;
+            synchronized (this) {
+                if (isClosed)
+                    throw new IllegalStateException("WebDriver pool is closed");
+                quitInBackground(removeExpired());
+                if (!idle.isEmpty()) {
+                    candidate = idle.pollFirst().driver;
+                } else if (size < maxSize) {
+                    size++;
+                    canCreate = true;
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0)
+                        throw new IllegalStateException("Timed out waiting for a free WebDriver session, pool size is " + maxSize);
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for a free WebDriver session", e);
+                    }
+                    continue;
+                }
+            }
+
+            // creating and checking sessions is slow, so it's done outside of the lock
+            if (canCreate) {
+                WebDriver driver;
+                try {
+                    driver = factory.get();
+                } catch (RuntimeException e) {
+                    discarded(null);
+                    throw e;
+                }
+                return leased(driver);
+            }
+            if (isHealthy(candidate))
+                return leased(candidate);
+            discarded(candidate);
+        }
+    }
+
+    /**
+     * Returns a leased session to the pool. Sessions which aren't leased, e.g. ones released a second time, are ignored.
+     */
+    public void release(WebDriver driver) {
+        synchronized (this) {
+            if (!leased.remove(driver))
+                return;
+        }
+        try {
+            reset.accept(driver);
+        } catch (RuntimeException e) {
+            discarded(driver);
+            return;
+        }
+        synchronized (this) {
+            if (!isClosed) {
+                idle.addFirst(new IdleSession(driver, System.currentTimeMillis()));
+                startEvictor();
+                notifyAll();
+                return;
+            }
+        }
+        discarded(driver);
+    }
+
+    /**
+     * Quits idle sessions and sessions still leased, e.g. by scenarios running at JVM shutdown.
+     */
+    @Override
+    public void close() {
+        List<WebDriver> drivers = new ArrayList<>();
+        synchronized (this) {
+            isClosed = true;
+            if (evictor != null)
+                evictor.shutdownNow();
+            for (IdleSession session : idle)
+                drivers.add(session.driver);
+            idle.clear();
+            // releasing them later is ignored
+            drivers.addAll(leased);
+            leased.clear();
+            notifyAll();
+        }
+        for (WebDriver driver : drivers)
+            discarded(driver);
+    }
+
+    private void startEvictor() {
+        if (evictor != null)
+            return;
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CloudBeat WebDriver eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // sessions are quit at most half a timeout late
+        long period = Math.max(1, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(() -> {
+            for (WebDriver driver : removeExpired())
+                discarded(driver);
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized List<WebDriver> removeExpired() {
+        List<WebDriver> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<IdleSession> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            IdleSession session = it.next();
+            if (now - session.idleSince < idleTimeoutMillis)
+                break;
+            it.remove();
+            expired.add(session.driver);
+        }
+        return expired;
+    }
+
+    private void quitInBackground(List<WebDriver> drivers) {
+        if (drivers.isEmpty())
+            return;
+        // quitting is slow and the caller holds the lock
+        Thread quitThread = new Thread(() -> {
+            for (WebDriver driver : drivers)
+                discarded(driver);
+        }, "CloudBeat WebDriver eviction");
+        quitThread.setDaemon(true);
+        quitThread.start();
+    }
+
+    private synchronized WebDriver leased(WebDriver driver) {
+        leased.add(driver);
+        return driver;
+    }
+
+    private boolean isHealthy(WebDriver driver) {
+        try {
+            return healthCheck.test(driver);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void discarded(WebDriver driver) {
+        if (driver != null) {
+            try {
+                driver.quit();
+            } catch (RuntimeException e) {
+                // session is already gone
+            }
+        }
+        synchronized (this) {
+            size--;
+            notifyAll();
+        }
+    }
+
+    private static boolean isResponsive(WebDriver driver) {
+        return driver.getWindowHandle() != null;
+    }
+
+    private static void deleteCookies(WebDriver driver) {
+        driver.manage().deleteAllCookies();
+    }
+}
@@ -0,0 +1,148 @@
+package io.cloudbeat.cucumber;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BaselineIndexTest {
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    @Test
+    public void relativeThresholdIsUsedWithoutZScore() throws IOException {
+        BaselineIndex baseline = load(createRun("Passed", 1000), createRun("Passed", 1000));
+
+        assertTrue(baseline.compare(cases(createCase(1400))).isEmpty());
+
+        CaseModel caze = createCase(1600);
+        List<RegressionModel> regressions = baseline.compare(cases(caze));
+        assertEquals(1, regressions.size());
+        assertEquals(1600, regressions.get(0).duration);
+        assertEquals(1000, regressions.get(0).baselineDuration);
+        assertNull(regressions.get(0).zScore);
+        assertEquals("1000", caze.stats.get("baselineDuration"));
+        assertEquals("true", caze.stats.get("regression"));
+        assertEquals(0, baseline.getZScoreFallbackCount());
+    }
+
+    @Test
+    public void smallDifferencesAreIgnored() throws IOException {
+        BaselineIndex baseline = load(createRun("Passed", 10));
+        baseline.setMinDifference(50);
+
+        assertTrue(baseline.compare(cases(createCase(40))).isEmpty());
+    }
+
+    @Test
+    public void zScoreIsUsedWhenBaselineVaries() throws IOException {
+        // mean 1000, standard deviation 141.42
+        BaselineIndex baseline = load(createRun("Passed", 900), createRun("Passed", 1100));
+        baseline.setZScoreThreshold(3);
+
+        // within the relative threshold, but 3.18 standard deviations above the mean
+        CaseModel caze = createCase(1450);
+        List<RegressionModel> regressions = baseline.compare(cases(caze));
+        assertEquals(1, regressions.size());
+        assertEquals(3.18, regressions.get(0).zScore, 0.01);
+        assertEquals("3.18", caze.stats.get("zScore"));
+
+        // above the relative threshold, but within 5 standard deviations
+        baseline.setZScoreThreshold(5);
+        assertTrue(baseline.compare(cases(createCase(1600))).isEmpty());
+        assertEquals(0, baseline.getZScoreFallbackCount());
+    }
+
+    @Test
+    public void relativeThresholdIsUsedWhenBaselineDoesNotVary() throws IOException {
+        BaselineIndex baseline = load(createRun("Passed", 1000, 400, 600), createRun("Passed", 1000, 400, 600));
+        baseline.setZScoreThreshold(3);
+
+        List<RegressionModel> regressions = baseline.compare(cases(createCase(1600, 1000, 650)));
+        assertEquals(2, regressions.size());
+        assertNull(regressions.get(0).zScore);
+        assertEquals(Integer.valueOf(0), regressions.get(1).stepOrder);
+        // the case and both steps
+        assertEquals(3, baseline.getZScoreFallbackCount());
+
+        // counted per comparison
+        baseline.compare(Collections.emptyList());
+        assertEquals(0, baseline.getZScoreFallbackCount());
+    }
+
+    @Test
+    public void onlyPassedCasesAreBaseline() throws IOException {
+        BaselineIndex baseline = load(createRun("Failed", 100), createRun("Passed", 1000));
+
+        assertEquals(2, baseline.getRunCount());
+        assertEquals(1000, baseline.getCaseDuration(1), 0.001);
+        assertEquals(0, baseline.getCaseDuration(2), 0.001);
+    }
+
+    @Test
+    public void changedStepsAreNotCompared() throws IOException {
+        BaselineIndex baseline = load(createRun("Passed", 1000, 400, 600));
+
+        CaseModel caze = createCase(1000, 4000, 600);
+        caze.steps.get(0).name = "renamed step";
+        assertTrue(baseline.compare(cases(caze)).isEmpty());
+        assertNull(caze.steps.get(0).stats);
+        assertEquals("600", caze.steps.get(1).stats.get("baselineDuration"));
+    }
+
+    private BaselineIndex load(String... runs) throws IOException {
+        StringBuilder paths = new StringBuilder();
+        for (String run : runs) {
+            File file = workDir.newFile();
+            Files.write(file.toPath(), run.getBytes(StandardCharsets.UTF_8));
+            paths.append(file.getPath()).append(',');
+        }
+        return BaselineIndex.Load(paths.toString());
+    }
+
+    // results file with case 1, its steps carry a screenshot which the index has to skip
+    private static String createRun(String status, long duration, long... stepDurations) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"status\":\"").append(status).append("\",\"suites\":[{\"cases\":[{\"id\":1,\"name\":\"Case\",\"status\":\"")
+                .append(status).append("\",\"duration\":").append(duration).append(",\"steps\":[");
+        for (int i = 0; i < stepDurations.length; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"name\":\"step ").append(i).append("\",\"screenShot\":\"iVBORw0KGgo=\",\"order\":").append(i)
+                    .append(",\"duration\":").append(stepDurations[i]).append('}');
+        }
+        sb.append("]}]}]}");
+        return sb.toString();
+    }
+
+    private static CaseModel createCase(long duration, long... stepDurations) {
+        CaseModel caze = new CaseModel();
+        caze.id = 1;
+        caze.name = "Case";
+        caze.duration = duration;
+        caze.steps = new ArrayList<>();
+        for (int i = 0; i < stepDurations.length; i++) {
+            StepModel step = new StepModel();
+            step.name = "step " + i;
+            step.order = i;
+            step.duration = stepDurations[i];
+            caze.steps.add(step);
+        }
+        return caze;
+    }
+
+    private static List<CaseModel> cases(CaseModel caze) {
+        return Collections.singletonList(caze);
+    }
+}
@@ -0,0 +1,102 @@
+package io.cloudbeat.cucumber;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+    @Test
+    public void failureRateNeedsFullWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 0.5, 0);
+        assertNull(breaker.recordCase(false, "first error"));
+        assertNull(breaker.recordCase(false, "second error"));
+        assertNull(breaker.recordCase(true, null));
+        String reason = breaker.recordCase(true, null);
+
+        assertEquals("Circuit breaker opened after 2 of the last 4 cases failed", reason);
+        assertEquals(reason, breaker.getOpenReason());
+    }
+
+    @Test
+    public void failureRateBelowThresholdKeepsBreakerClosed() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 0.5, 0);
+        assertNull(breaker.recordCase(false, "first error"));
+        for (int i = 0; i < 10; i++)
+            assertNull(breaker.recordCase(true, null));
+        assertNull(breaker.getOpenReason());
+    }
+
+    @Test
+    public void failuresLeaveTheWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1, 0);
+        assertNull(breaker.recordCase(false, "a"));
+        assertNull(breaker.recordCase(true, null));
+        assertNull(breaker.recordCase(false, "b"));
+        // the first failure dropped out, the pass is still in the window
+        assertNull(breaker.recordCase(false, "c"));
+        assertNotNull(breaker.recordCase(false, "d"));
+    }
+
+    @Test
+    public void sameErrorOpensBeforeWindowIsFull() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 0, 3);
+        assertNull(breaker.recordCase(false, "Timeout after 100 ms\n\tat Foo.bar(Foo.java:12)"));
+        assertNull(breaker.recordCase(false, "Timeout after 250 ms"));
+        assertNull(breaker.recordCase(false, "Element not found"));
+        String reason = breaker.recordCase(false, "  Timeout after 3 ms  ");
+
+        assertEquals("Circuit breaker opened after 3 of the last 4 cases failed with the same error: Timeout after # ms", reason);
+    }
+
+    @Test
+    public void sameErrorLeavesTheWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 0, 2);
+        assertNull(breaker.recordCase(false, "Connection refused"));
+        assertNull(breaker.recordCase(true, null));
+        assertNull(breaker.recordCase(false, "Connection refused"));
+        assertNotNull(breaker.recordCase(false, "Connection refused"));
+    }
+
+    @Test
+    public void failuresWithoutMessageDontCountAsSameError() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 0, 2);
+        assertNull(breaker.recordCase(false, null));
+        assertNull(breaker.recordCase(false, ""));
+        assertNull(breaker.recordCase(false, " \n"));
+        assertNull(breaker.getOpenReason());
+    }
+
+    @Test
+    public void disabledChecksNeverOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, 0);
+        for (int i = 0; i < 10; i++)
+            assertNull(breaker.recordCase(false, "same error"));
+    }
+
+    @Test
+    public void reasonIsReturnedOnlyOnce() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 0);
+        String reason = breaker.recordCase(false, "error");
+        assertNotNull(reason);
+        assertNull(breaker.recordCase(false, "error"));
+        assertNull(breaker.recordCase(true, null));
+        assertEquals(reason, breaker.getOpenReason());
+    }
+
+    @Test
+    public void signatureMasksNumbersAndIsCapped() {
+        assertNull(CircuitBreaker.getSignature(null));
+        assertNull(CircuitBreaker.getSignature("\nsecond line"));
+        assertEquals("Port # closed after #.# s", CircuitBreaker.getSignature("Port 4444 closed after 1.5 s\nmore"));
+
+        StringBuilder longMessage = new StringBuilder();
+        for (int i = 0; i < 300; i++)
+            longMessage.append('x');
+        String signature = CircuitBreaker.getSignature(longMessage.toString());
+        assertEquals(200, signature.length());
+        assertTrue(longMessage.toString().startsWith(signature));
+    }
+}
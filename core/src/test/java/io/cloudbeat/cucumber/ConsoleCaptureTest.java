@@ -0,0 +1,99 @@
+package io.cloudbeat.cucumber;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConsoleCaptureTest {
+    @Test
+    public void singleBytesWrapAround() {
+        ConsoleCapture.RingBuffer buffer = new ConsoleCapture.RingBuffer(4);
+        for (byte b : bytes("abcdef"))
+            buffer.write(b);
+
+        assertEquals(6, buffer.written);
+        assertEquals("cdef", read(buffer, 0));
+        assertEquals("ef", read(buffer, 4));
+    }
+
+    @Test
+    public void arrayWritesWrapAround() {
+        ConsoleCapture.RingBuffer buffer = new ConsoleCapture.RingBuffer(8);
+        write(buffer, "12345");
+        long mark = buffer.written;
+        // starts at position 5 and continues at the beginning
+        write(buffer, "abcdef");
+
+        assertEquals("abcdef", read(buffer, mark));
+        assertEquals("45abcdef", read(buffer, 0));
+    }
+
+    @Test
+    public void onlyTailOfLongWritesIsKept() {
+        ConsoleCapture.RingBuffer buffer = new ConsoleCapture.RingBuffer(4);
+        write(buffer, "xy");
+        write(buffer, "abcdefghij");
+
+        assertEquals(12, buffer.written);
+        assertEquals("ghij", read(buffer, 2));
+        write(buffer, "kl");
+        assertEquals("ijkl", read(buffer, 0));
+    }
+
+    @Test
+    public void writesOfExactlyBufferSize() {
+        ConsoleCapture.RingBuffer buffer = new ConsoleCapture.RingBuffer(4);
+        write(buffer, "a");
+        write(buffer, "bcde");
+
+        assertEquals("bcde", read(buffer, 0));
+        assertEquals("", read(buffer, buffer.written));
+    }
+
+    @Test
+    public void partialWritesOfArray() {
+        ConsoleCapture.RingBuffer buffer = new ConsoleCapture.RingBuffer(4);
+        buffer.write(bytes("--abc--"), 2, 3);
+
+        assertEquals("abc", read(buffer, 0));
+    }
+
+    @Test
+    public void multiByteCharactersCutByWrapAreSkipped() {
+        ConsoleCapture.RingBuffer buffer = new ConsoleCapture.RingBuffer(6);
+        // 1 + 2 + 3 + 4 + 1 bytes, the buffer keeps the last byte of the euro sign
+        byte[] text = "a\u00e9\u20ac\ud83d\ude00z".getBytes(StandardCharsets.UTF_8);
+        buffer.write(text, 0, text.length);
+
+        assertEquals("\ud83d\ude00z", buffer.readString(0, StandardCharsets.UTF_8));
+        write(buffer, "xyz");
+        // the emoji lost its first 2 bytes
+        assertEquals("zxyz", buffer.readString(0, StandardCharsets.UTF_8));
+        // not cut
+        assertEquals("xyz", buffer.readString(buffer.written - 3, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void otherCharsetsAreDecodedAsIs() {
+        ConsoleCapture.RingBuffer buffer = new ConsoleCapture.RingBuffer(4);
+        byte[] text = "ab\u00e9\u00e8\u00ea".getBytes(StandardCharsets.ISO_8859_1);
+        buffer.write(text, 0, text.length);
+
+        assertEquals("b\u00e9\u00e8\u00ea", buffer.readString(0, StandardCharsets.ISO_8859_1));
+    }
+
+    private static void write(ConsoleCapture.RingBuffer buffer, String text) {
+        byte[] b = bytes(text);
+        buffer.write(b, 0, b.length);
+    }
+
+    private static String read(ConsoleCapture.RingBuffer buffer, long from) {
+        return new String(buffer.read(from), StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
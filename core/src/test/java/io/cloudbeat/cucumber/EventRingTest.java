@@ -0,0 +1,139 @@
+package io.cloudbeat.cucumber;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventRingTest {
+    private static final class TestSlot extends EventRing.Slot {
+        int producer;
+        int value;
+        String payload;
+
+        @Override
+        protected void clear() {
+            payload = null;
+        }
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(2, getCapacity(2));
+        assertEquals(8, getCapacity(5));
+        assertEquals(8, getCapacity(8));
+        assertEquals(16, getCapacity(9));
+    }
+
+    @Test
+    public void handlesEveryEventInOrderOfEachProducerAcrossWrapArounds() throws InterruptedException {
+        int producers = 4;
+        int eventsPerProducer = 10000;
+        // handled on the single consumer thread only, read after close() joined it
+        List<int[]> handled = new ArrayList<>();
+        List<String> payloads = new ArrayList<>();
+        List<TestSlot> slots = new ArrayList<>();
+        EventRing<TestSlot> ring = new EventRing<>(8, () -> {
+            TestSlot slot = new TestSlot();
+            slots.add(slot);
+            return slot;
+        }, slot -> {
+            handled.add(new int[] { slot.producer, slot.value });
+            payloads.add(slot.payload);
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    TestSlot slot = ring.claim();
+                    slot.producer = producer;
+                    slot.value = i;
+                    slot.payload = "event " + i;
+                    ring.publish(slot);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        ring.close();
+
+        assertEquals(producers * eventsPerProducer, handled.size());
+        int[] next = new int[producers];
+        for (int i = 0; i < handled.size(); i++) {
+            int[] event = handled.get(i);
+            assertEquals(next[event[0]]++, event[1]);
+            assertEquals("event " + event[1], payloads.get(i));
+        }
+        // far more events than slots, so the producers had to wait for the consumer at some point
+        assertTrue(ring.getOverflowCount() > 0);
+        assertTrue(ring.getHighWaterMark() <= ring.getCapacity());
+        for (TestSlot slot : slots)
+            assertNull(slot.payload);
+    }
+
+    @Test
+    public void failingHandlerDoesNotStopTheConsumer() {
+        List<Integer> handled = new ArrayList<>();
+        EventRing<TestSlot> ring = new EventRing<>(2, TestSlot::new, slot -> {
+            if (slot.value == 1)
+                throw new IllegalStateException("expected");
+            handled.add(slot.value);
+        });
+        for (int i = 0; i < 5; i++) {
+            TestSlot slot = ring.claim();
+            slot.value = i;
+            ring.publish(slot);
+        }
+        ring.close();
+
+        assertEquals(Arrays.asList(0, 2, 3, 4), handled);
+    }
+
+    @Test
+    public void drainWaitsForPublishedEvents() {
+        List<Integer> handled = new ArrayList<>();
+        EventRing<TestSlot> ring = new EventRing<>(4, TestSlot::new, slot -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (handled) {
+                handled.add(slot.value);
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            TestSlot slot = ring.claim();
+            slot.value = i;
+            ring.publish(slot);
+        }
+        ring.drain();
+        synchronized (handled) {
+            assertEquals(3, handled.size());
+        }
+        ring.close();
+    }
+
+    private static int getCapacity(int capacity) {
+        EventRing<TestSlot> ring = new EventRing<>(capacity, TestSlot::new, slot -> { });
+        ring.close();
+        return ring.getCapacity();
+    }
+}
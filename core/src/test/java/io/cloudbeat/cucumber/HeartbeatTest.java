@@ -0,0 +1,86 @@
+package io.cloudbeat.cucumber;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeartbeatTest {
+    private static final long INTERVAL_MILLIS = 10;
+
+    @Test
+    public void sendsUpdatesOfRunningCasesUntilTheyFinish() throws InterruptedException {
+        List<Integer> updates = new CopyOnWriteArrayList<>();
+        CountDownLatch sent = new CountDownLatch(3);
+        Heartbeat heartbeat = new Heartbeat(INTERVAL_MILLIS, (runningCase, nowNanos) -> {
+            updates.add(runningCase.stepIndex);
+            sent.countDown();
+        });
+        try {
+            heartbeat.caseStarted(new Heartbeat.RunningCase(1, "Case", System.nanoTime(), 2));
+            heartbeat.stepStarted();
+            assertTrue(sent.await(5, TimeUnit.SECONDS));
+            heartbeat.caseFinished();
+            int count = updates.size();
+
+            Thread.sleep(INTERVAL_MILLIS * 5);
+            assertEquals(count, updates.size());
+            assertEquals(Integer.valueOf(1), updates.get(0));
+        } finally {
+            heartbeat.stop();
+        }
+    }
+
+    @Test
+    public void stopEndsUpdatesOfCasesStillRunning() throws InterruptedException {
+        List<Long> updates = new CopyOnWriteArrayList<>();
+        CountDownLatch sent = new CountDownLatch(1);
+        Heartbeat heartbeat = new Heartbeat(INTERVAL_MILLIS, (runningCase, nowNanos) -> {
+            updates.add(runningCase.caseId);
+            sent.countDown();
+        });
+        heartbeat.caseStarted(new Heartbeat.RunningCase(1, "Case", System.nanoTime(), 1));
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        heartbeat.stop();
+        int count = updates.size();
+
+        Thread.sleep(INTERVAL_MILLIS * 5);
+        assertEquals(count, updates.size());
+    }
+
+    @Test
+    public void finishingCaseWaitsForUpdateInFlight() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(1);
+        List<String> events = new CopyOnWriteArrayList<>();
+        Heartbeat heartbeat = new Heartbeat(INTERVAL_MILLIS, (runningCase, nowNanos) -> {
+            // what the reporter does, see ResultReporter.sendHeartbeat
+            synchronized (runningCase) {
+                if (runningCase.isFinished)
+                    return;
+                sending.countDown();
+                try {
+                    Thread.sleep(INTERVAL_MILLIS * 5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add("update");
+            }
+        });
+        try {
+            heartbeat.caseStarted(new Heartbeat.RunningCase(1, "Case", System.nanoTime(), 1));
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            heartbeat.caseFinished();
+            events.add("final status");
+
+            Thread.sleep(INTERVAL_MILLIS * 5);
+            assertEquals("final status", events.get(events.size() - 1));
+        } finally {
+            heartbeat.stop();
+        }
+    }
+}
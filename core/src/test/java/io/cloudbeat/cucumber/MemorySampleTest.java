@@ -0,0 +1,126 @@
+package io.cloudbeat.cucumber;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Hashtable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MemorySampleTest {
+    @Test
+    public void deltasArePutIntoStats() {
+        MemorySample start = new MemorySample(1000, 3, 40, 1, 5000);
+        MemorySample end = new MemorySample(1500, 5, 65, 2, 8000);
+        Hashtable<String, String> stats = new Hashtable<>();
+
+        MemorySummaryModel.CaseMemory memory = end.putDeltas(start, stats);
+
+        assertEquals(500, memory.heapUsedDelta);
+        assertEquals(2, memory.gcCount);
+        assertEquals(25, memory.gcTime);
+        assertEquals(1, memory.fullGcCount);
+        assertEquals(Long.valueOf(3000), memory.allocatedBytes);
+        assertEquals("500", stats.get("heapUsedDelta"));
+        assertEquals("2", stats.get("gcCount"));
+        assertEquals("25", stats.get("gcTime"));
+        assertEquals("1", stats.get("fullGcCount"));
+        assertEquals("3000", stats.get("allocatedBytes"));
+    }
+
+    @Test
+    public void allocatedBytesAreLeftOutWhenNotCounted() {
+        MemorySample start = new MemorySample(1000, 3, 40, 1, -1);
+        MemorySample end = new MemorySample(1500, 5, 65, 1, -1);
+        Hashtable<String, String> stats = new Hashtable<>();
+
+        MemorySummaryModel.CaseMemory memory = end.putDeltas(start, stats);
+
+        assertNull(memory.allocatedBytes);
+        assertNull(stats.get("allocatedBytes"));
+        assertEquals("500", stats.get("heapUsedDelta"));
+        // counting enabled in the middle of a case
+        assertNull(new MemorySample(1500, 5, 65, 1, 8000).putDeltas(start, new Hashtable<>()).allocatedBytes);
+    }
+
+    @Test
+    public void allocatedBytesNeedHotSpotThreadBean() {
+        // e.g. a JVM without com.sun.management
+        ThreadMXBean plainBean = (ThreadMXBean)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ThreadMXBean.class }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        assertEquals(-1, MemorySample.getAllocatedBytes(plainBean));
+        assertEquals(-1, MemorySample.getAllocatedBytes(createThreadBean(false, true)));
+        assertEquals(-1, MemorySample.getAllocatedBytes(createThreadBean(true, false)));
+        assertEquals(1234, MemorySample.getAllocatedBytes(createThreadBean(true, true)));
+    }
+
+    @Test
+    public void takeCountsAllocationsOfCurrentThread() {
+        MemorySample start = MemorySample.take();
+        byte[][] garbage = new byte[100][];
+        for (int i = 0; i < garbage.length; i++)
+            garbage[i] = new byte[10000];
+        MemorySample end = MemorySample.take();
+
+        assertTrue(end.gcCount >= start.gcCount);
+        if (MemorySample.getAllocatedBytes(ManagementFactory.getThreadMXBean()) >= 0)
+            assertTrue(end.allocatedBytes - start.allocatedBytes >= garbage.length * 10000L);
+        else
+            assertEquals(-1, end.allocatedBytes);
+    }
+
+    @Test
+    public void summaryRanksCasesByAllocationsOrHeapGrowth() {
+        MemorySample runStart = new MemorySample(1000, 3, 40, 1, -1);
+        MemorySample runEnd = new MemorySample(9000, 10, 140, 2, -1);
+        MemorySummaryModel.CaseMemory small = createCaseMemory(1, 100L, 5000, 0);
+        MemorySummaryModel.CaseMemory large = createCaseMemory(2, 8000L, 0, 1);
+        // not counted, ranked by heap growth instead
+        MemorySummaryModel.CaseMemory unknown = createCaseMemory(3, null, 3000, 0);
+
+        MemorySummaryModel summary = runEnd.summarize(runStart, Arrays.asList(small, large, unknown), 2);
+
+        assertEquals(1000, summary.heapUsedStart);
+        assertEquals(9000, summary.heapUsedEnd);
+        assertEquals(7, summary.gcCount);
+        assertEquals(100, summary.gcTime);
+        assertEquals(1, summary.fullGcCount);
+        assertEquals(2, summary.topAllocatingCases.size());
+        assertSame(large, summary.topAllocatingCases.get(0));
+        assertSame(unknown, summary.topAllocatingCases.get(1));
+        assertEquals(Arrays.asList(large), summary.fullGcCases);
+    }
+
+    private ThreadMXBean createThreadBean(boolean isSupported, boolean isEnabled) {
+        return (ThreadMXBean)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { com.sun.management.ThreadMXBean.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isThreadAllocatedMemorySupported":
+                            return isSupported;
+                        case "isThreadAllocatedMemoryEnabled":
+                            return isEnabled;
+                        case "getThreadAllocatedBytes":
+                            return 1234L;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static MemorySummaryModel.CaseMemory createCaseMemory(long caseId, Long allocatedBytes, long heapUsedDelta, long fullGcCount) {
+        MemorySummaryModel.CaseMemory memory = new MemorySummaryModel.CaseMemory();
+        memory.caseId = caseId;
+        memory.allocatedBytes = allocatedBytes;
+        memory.heapUsedDelta = heapUsedDelta;
+        memory.fullGcCount = fullGcCount;
+        return memory;
+    }
+}
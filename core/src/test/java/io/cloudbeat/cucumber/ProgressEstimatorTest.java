@@ -0,0 +1,139 @@
+package io.cloudbeat.cucumber;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProgressEstimatorTest {
+    private static final long MILLIS = 1000000L;
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    @Test
+    public void casesPerMinuteFollowsMovingAverageOfIntervals() {
+        ProgressEstimator estimator = new ProgressEstimator(0, createCases(4), null);
+        StatusModel status = new StatusModel();
+
+        estimator.update(1, 100 * MILLIS, true, 1000 * MILLIS, status);
+        assertEquals(60, status.casesPerMinute, 0.001);
+        // 0.2 * 2000 + 0.8 * 1000
+        estimator.update(2, 100 * MILLIS, true, 3000 * MILLIS, status);
+        assertEquals(60000d / 1200, status.casesPerMinute, 0.001);
+        // 0.2 * 1000 + 0.8 * 1200
+        estimator.update(3, 100 * MILLIS, true, 4000 * MILLIS, status);
+        assertEquals(60000d / 1160, status.casesPerMinute, 0.001);
+
+        assertEquals(0.75, status.progress, 0.0001);
+        assertEquals(4000, status.elapsedTime);
+        assertEquals(1333, status.remainingTime.longValue());
+    }
+
+    @Test
+    public void unknownCasesAreWeightedWithAverageDuration() throws IOException {
+        // case 1 took 300 ms in the baseline, 2 and 3 are new
+        ProgressEstimator estimator = new ProgressEstimator(0, createCases(3), createBaseline(1, 300));
+        StatusModel status = new StatusModel();
+
+        estimator.update(2, 100 * MILLIS, true, 1000 * MILLIS, status);
+        // 100 of 300 + 2 * 100
+        assertEquals(0.2, status.progress, 0.0001);
+        assertEquals(4000, status.remainingTime.longValue());
+
+        // average duration is now 0.2 * 200 + 0.8 * 100 = 120, so 240 of 300 + 2 * 120
+        estimator.update(3, 200 * MILLIS, true, 2000 * MILLIS, status);
+        assertEquals(240d / 540, status.progress, 0.0001);
+
+        estimator.update(1, 500 * MILLIS, true, 3000 * MILLIS, status);
+        assertEquals(1, status.progress, 0.0001);
+        assertEquals(0, status.remainingTime.longValue());
+    }
+
+    @Test
+    public void throughputDropIsDetectedWhenRecentIntervalsAreLong() {
+        ProgressEstimator estimator = new ProgressEstimator(0, createCases(30), null);
+        StatusModel status = new StatusModel();
+        long now = 0;
+        int caseId = 1;
+        for (; caseId <= 20; caseId++) {
+            now += 100 * MILLIS;
+            estimator.update(caseId, 100 * MILLIS, true, now, status);
+            assertFalse(status.throughputDropped);
+        }
+
+        // average interval 0.2 * 1000 + 0.8 * 100 = 280, half of it is below 3000 / 21
+        now += 1000 * MILLIS;
+        estimator.update(caseId++, 100 * MILLIS, true, now, status);
+        assertFalse(status.throughputDropped);
+        // average interval 0.2 * 1000 + 0.8 * 280 = 424, half of it is above 4000 / 22
+        now += 1000 * MILLIS;
+        estimator.update(caseId, 100 * MILLIS, true, now, status);
+        assertTrue(status.throughputDropped);
+    }
+
+    @Test
+    public void rerunsAreCountedOnce() {
+        ProgressEstimator estimator = new ProgressEstimator(0, createCases(2), null);
+        StatusModel status = new StatusModel();
+
+        estimator.update(1, 100 * MILLIS, true, 1000 * MILLIS, status);
+        assertEquals(0.5, status.progress, 0.0001);
+        // second attempt of the same case
+        estimator.update(1, 100 * MILLIS, true, 2000 * MILLIS, status);
+        assertEquals(0.5, status.progress, 0.0001);
+        assertEquals(60, status.casesPerMinute, 0.001);
+
+        estimator.update(2, 100 * MILLIS, true, 4000 * MILLIS, status);
+        assertEquals(1, status.progress, 0.0001);
+        // 0.2 * 3000 + 0.8 * 1000
+        assertEquals(60000d / 1400, status.casesPerMinute, 0.001);
+    }
+
+    @Test
+    public void casesNotRunAreLeftOutOfAverages() {
+        ProgressEstimator estimator = new ProgressEstimator(0, createCases(4), null);
+        StatusModel status = new StatusModel();
+
+        estimator.update(1, 1000 * MILLIS, true, 1000 * MILLIS, status);
+        // skipped right away, e.g. by the circuit breaker or taken from the result cache
+        estimator.update(2, 0, false, 1001 * MILLIS, status);
+        estimator.update(3, 0, false, 1002 * MILLIS, status);
+        assertEquals(0.75, status.progress, 0.0001);
+        assertEquals(60, status.casesPerMinute, 0.001);
+
+        // the interval runs from the last case that ran, 0.2 * 2000 + 0.8 * 1000
+        estimator.update(4, 1000 * MILLIS, true, 3000 * MILLIS, status);
+        assertEquals(60000d / 1200, status.casesPerMinute, 0.001);
+        assertEquals(1, status.progress, 0.0001);
+    }
+
+    private static List<PayloadModel.Case> createCases(int count) {
+        List<PayloadModel.Case> cases = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            PayloadModel.Case caze = new PayloadModel.Case();
+            caze.id = i;
+            caze.order = i;
+            caze.cucumberId = "test.feature:" + i + " # Case " + i;
+            cases.add(caze);
+        }
+        return cases;
+    }
+
+    private BaselineIndex createBaseline(long caseId, long duration) throws IOException {
+        File file = workDir.newFile();
+        String json = "{\"suites\":[{\"cases\":[{\"id\":" + caseId + ",\"status\":\"Passed\",\"duration\":" + duration + ",\"steps\":[]}]}]}";
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return BaselineIndex.Load(file.getPath());
+    }
+}
@@ -0,0 +1,119 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResultCacheTest {
+    private static final String PICKLE_TEXT = "Scenario: Adding\nGiven a calculator";
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    @Test
+    public void keyIsStable() {
+        // keys are persisted, so they must not change between runs, JVMs or versions
+        assertEquals("fd1c3bf08cee4e18dd51755a2f6d61b1bd0187ae", createCache("glue-1").getKey(PICKLE_TEXT));
+        assertEquals(createCache("glue-1").getKey(PICKLE_TEXT), createCache("glue-1").getKey(PICKLE_TEXT));
+    }
+
+    @Test
+    public void keyChangesWithPickleAndGlue() {
+        String key = createCache("glue-1").getKey(PICKLE_TEXT);
+
+        assertNotEquals(key, createCache("glue-2").getKey(PICKLE_TEXT));
+        assertNotEquals(key, createCache("glue-1").getKey(PICKLE_TEXT + " "));
+        // the separator keeps the glue fingerprint from running into the pickle text
+        assertNotEquals(createCache("ab").getKey("c"), createCache("a").getKey("bc"));
+    }
+
+    @Test
+    public void savedCasesAreReturnedAsCached() throws IOException {
+        Path path = workDir.getRoot().toPath().resolve("cache").resolve("results.json");
+        ResultCache cache = new ResultCache(path, "glue-1");
+        String key = cache.getKey(PICKLE_TEXT);
+        cache.put(key, "run-1", createCase());
+        assertTrue(cache.isModified());
+        cache.save();
+        assertFalse(cache.isModified());
+
+        ResultCache loaded = new ResultCache(path, "glue-1");
+        loaded.load();
+        CaseModel caze = loaded.get(key);
+        assertEquals("Adding", caze.name);
+        assertEquals("true", caze.stats.get("cached"));
+        assertEquals("run-1", caze.stats.get("cachedRunId"));
+        // the times of the run the case comes from
+        assertEquals(new Date(1700000000000L), caze.startTime);
+        assertEquals(new Date(1700000001500L), caze.endTime);
+        assertEquals(1500, caze.duration);
+        assertEquals(new Date(1700000000500L), caze.steps.get(0).startTime);
+        assertEquals(new Date(1700000001000L), caze.steps.get(0).endTime);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, caze.steps.get(0).screenShot);
+        assertNull(loaded.get(loaded.getKey(PICKLE_TEXT + " ")));
+    }
+
+    @Test
+    public void readsBinaryCacheFiles() throws IOException {
+        ObjectMapper smileMapper = ResultEncoding.SMILE.createMapper();
+        ObjectNode entry = smileMapper.createObjectNode();
+        entry.put("runId", "run-1");
+        entry.set("case", smileMapper.valueToTree(createCase()));
+        Path path = workDir.newFile().toPath();
+        Files.write(path, smileMapper.writeValueAsBytes(smileMapper.createObjectNode().set("key", entry)));
+
+        ResultCache cache = new ResultCache(path, "glue-1");
+        cache.load();
+        assertEquals("Adding", cache.get("key").name);
+    }
+
+    @Test
+    public void incompatibleEntriesAreDropped() throws IOException {
+        Path path = workDir.newFile().toPath();
+        Files.write(path, "{\"key\":{\"runId\":\"run-1\",\"case\":{\"steps\":\"not a list\"}}}".getBytes(StandardCharsets.UTF_8));
+
+        ResultCache cache = new ResultCache(path, "glue-1");
+        cache.load();
+        assertNull(cache.get("key"));
+        assertTrue(cache.isModified());
+    }
+
+    private ResultCache createCache(String glueFingerprint) {
+        return new ResultCache(workDir.getRoot().toPath().resolve("results.json"), glueFingerprint);
+    }
+
+    private static CaseModel createCase() {
+        CaseModel caze = new CaseModel();
+        caze.id = 1;
+        caze.name = "Adding";
+        caze.status = ResultStatus.Passed;
+        caze.startTime = new Date(1700000000000L);
+        caze.endTime = new Date(1700000001500L);
+        caze.duration = 1500;
+        caze.steps = new ArrayList<>();
+        StepModel step = new StepModel();
+        step.name = "a calculator";
+        step.status = ResultStatus.Passed;
+        step.startTime = new Date(1700000000500L);
+        step.endTime = new Date(1700000001000L);
+        step.screenShot = new byte[] { 1, 2, 3 };
+        caze.steps.add(step);
+        return caze;
+    }
+}
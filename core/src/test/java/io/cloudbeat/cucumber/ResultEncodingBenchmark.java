@@ -0,0 +1,139 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares size, encoding and decoding time of the results file in each {@link ResultEncoding}.
+ * Disabled by default, run with {@code mvn test -pl core -Dtest=ResultEncodingBenchmark -Dbenchmark=true [-Dbenchmark.cases=5000]}.
+ */
+public class ResultEncodingBenchmark {
+    private static final int CASES = Integer.getInteger("benchmark.cases", 5000);
+    private static final int STEPS_PER_CASE = 5;
+    // every n-th case fails and carries a screenshot
+    private static final int FAILED_EVERY = 50;
+    private static final int SCREENSHOT_SIZE = 100 * 1024;
+    private static final int ITERATIONS = 5;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        Assume.assumeTrue("Benchmarks are disabled, use -Dbenchmark=true to enable them", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void compareEncodings() throws IOException {
+        byte[] screenshot = new byte[SCREENSHOT_SIZE];
+        new Random(42).nextBytes(screenshot);
+        ResultModel result = createResult(screenshot);
+
+        System.out.println(String.format("%d cases, %d steps each, every %dth failed with a %d KB screenshot",
+                CASES, STEPS_PER_CASE, FAILED_EVERY, SCREENSHOT_SIZE / 1024));
+        System.out.println(String.format("%-8s %12s %12s %12s", "format", "size (KB)", "encode (ms)", "decode (ms)"));
+
+        long jsonSize = 0;
+        for (ResultEncoding encoding : ResultEncoding.values()) {
+            ObjectMapper mapper = encoding.createMapper();
+            byte[] encoded = null;
+            long[] encodeNanos = new long[ITERATIONS];
+            long[] decodeNanos = new long[ITERATIONS];
+            JsonNode decoded = null;
+            // first round warms up, the median of the rest is reported
+            for (int i = -1; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                encoded = mapper.writeValueAsBytes(result);
+                long encodedAt = System.nanoTime();
+                decoded = mapper.readTree(encoded);
+                long end = System.nanoTime();
+                if (i >= 0) {
+                    encodeNanos[i] = encodedAt - start;
+                    decodeNanos[i] = end - encodedAt;
+                }
+            }
+
+            System.out.println(String.format("%-8s %12d %12.1f %12.1f", encoding.getValue(), encoded.length / 1024,
+                    median(encodeNanos) / 1e6, median(decodeNanos) / 1e6));
+
+            JsonNode cases = decoded.get("suites").get(0).get("cases");
+            assertEquals(CASES, cases.size());
+            JsonNode screenshotNode = cases.get(0).get("steps").get(STEPS_PER_CASE - 1).get("screenShot");
+            if (encoding == ResultEncoding.JSON) {
+                jsonSize = encoded.length;
+                assertArrayEquals(screenshot, Base64.getDecoder().decode(screenshotNode.textValue()));
+            } else {
+                // raw bytes, no Base64
+                assertTrue(screenshotNode.isBinary());
+                assertArrayEquals(screenshot, screenshotNode.binaryValue());
+                assertTrue(encoded.length < jsonSize);
+            }
+        }
+    }
+
+    private static ResultModel createResult(byte[] screenshot) {
+        ResultModel result = new ResultModel();
+        result.runId = "run-1";
+        result.instanceId = "instance-1";
+        result.capabilities = new HashMap<>();
+        result.capabilities.put("browserName", "chrome");
+        result.startTime = new Date();
+        result.endTime = new Date();
+        result.status = ResultStatus.Failed;
+
+        SuiteModel suite = new SuiteModel();
+        suite.cases = new ArrayList<>();
+        result.suites = new ArrayList<>(Arrays.asList(suite));
+        long time = result.startTime.getTime();
+        for (int caseIdx = 0; caseIdx < CASES; caseIdx++) {
+            boolean isFailed = caseIdx % FAILED_EVERY == 0;
+            CaseModel caze = new CaseModel();
+            caze.id = caseIdx + 1;
+            caze.name = "Scenario " + caseIdx;
+            caze.iterationNum = 1;
+            caze.startTime = new Date(time);
+            caze.steps = new ArrayList<>();
+            for (int stepIdx = 0; stepIdx < STEPS_PER_CASE; stepIdx++) {
+                StepModel step = new StepModel();
+                step.name = "the user performs synthetic action number " + stepIdx;
+                step.order = stepIdx;
+                step.startTime = new Date(time);
+                step.duration = 120 + stepIdx;
+                time += step.duration;
+                step.endTime = new Date(time);
+                step.status = ResultStatus.Passed;
+                if (isFailed && stepIdx == STEPS_PER_CASE - 1) {
+                    step.status = ResultStatus.Failed;
+                    step.failure = new FailureModel();
+                    step.failure.type = "CUCUMBER_ERROR";
+                    step.failure.message = "java.lang.AssertionError: expected:<true> but was:<false>";
+                    step.screenShot = screenshot;
+                }
+                caze.steps.add(step);
+                caze.duration += step.duration;
+            }
+            caze.endTime = new Date(time);
+            caze.status = isFailed ? ResultStatus.Failed : ResultStatus.Passed;
+            suite.cases.add(caze);
+        }
+        return result;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
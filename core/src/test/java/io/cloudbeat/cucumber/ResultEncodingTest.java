@@ -0,0 +1,124 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResultEncodingTest {
+    @Test
+    public void smileRoundTrip() throws IOException {
+        assertRoundTrip(ResultEncoding.SMILE);
+    }
+
+    @Test
+    public void cborRoundTrip() throws IOException {
+        assertRoundTrip(ResultEncoding.CBOR);
+    }
+
+    @Test
+    public void jsonRoundTrip() throws IOException {
+        assertRoundTrip(ResultEncoding.JSON);
+    }
+
+    @Test
+    public void binaryEncodingsWriteRawScreenshots() throws IOException {
+        byte[] screenshot = createScreenshot();
+        for (ResultEncoding encoding : new ResultEncoding[] { ResultEncoding.SMILE, ResultEncoding.CBOR }) {
+            ObjectMapper mapper = encoding.createMapper();
+            JsonNode step = mapper.readTree(mapper.writeValueAsBytes(createResult(screenshot)))
+                    .get("suites").get(0).get("cases").get(0).get("steps").get(1);
+            assertTrue(step.get("screenShot").isBinary());
+            assertArrayEquals(screenshot, step.get("screenShot").binaryValue());
+        }
+    }
+
+    @Test
+    public void fromValueIgnoresCase() {
+        assertSame(ResultEncoding.SMILE, ResultEncoding.fromValue("Smile"));
+        assertSame(ResultEncoding.CBOR, ResultEncoding.fromValue("cbor"));
+        assertNull(ResultEncoding.fromValue("xml"));
+    }
+
+    private static void assertRoundTrip(ResultEncoding encoding) throws IOException {
+        byte[] screenshot = createScreenshot();
+        ResultModel result = createResult(screenshot);
+        ObjectMapper mapper = encoding.createMapper();
+        byte[] encoded = mapper.writeValueAsBytes(result);
+
+        // results files are read back without knowing the resultformat they were written with
+        assertSame(encoding, ResultEncoding.detect(encoded));
+        ResultModel decoded = mapper.readValue(encoded, ResultModel.class);
+        assertEquals("run-1", decoded.runId);
+        assertEquals(ResultStatus.Failed, decoded.status);
+        assertEquals(result.startTime, decoded.startTime);
+        assertEquals("chrome", decoded.capabilities.get("browserName"));
+        CaseModel caze = decoded.suites.get(0).cases.get(0);
+        assertEquals("Scenario 1", caze.name);
+        assertEquals(ResultStatus.Failed, caze.status);
+        assertEquals(2, caze.steps.size());
+        assertNull(caze.steps.get(0).screenShot);
+        StepModel step = caze.steps.get(1);
+        assertEquals(ResultStatus.Failed, step.status);
+        assertEquals("CUCUMBER_ERROR", step.failure.type);
+        assertEquals(result.suites.get(0).cases.get(0).steps.get(1).endTime, step.endTime);
+        assertArrayEquals(screenshot, step.screenShot);
+    }
+
+    private static byte[] createScreenshot() {
+        // every byte value, as in a real PNG
+        byte[] screenshot = new byte[4096];
+        new Random(42).nextBytes(screenshot);
+        return screenshot;
+    }
+
+    private static ResultModel createResult(byte[] screenshot) {
+        ResultModel result = new ResultModel();
+        result.runId = "run-1";
+        result.instanceId = "instance-1";
+        result.capabilities = new HashMap<>();
+        result.capabilities.put("browserName", "chrome");
+        result.startTime = new Date(1700000000000L);
+        result.endTime = new Date(1700000001000L);
+        result.status = ResultStatus.Failed;
+
+        CaseModel caze = new CaseModel();
+        caze.id = 1;
+        caze.name = "Scenario 1";
+        caze.iterationNum = 1;
+        caze.status = ResultStatus.Failed;
+        caze.steps = new ArrayList<>();
+        StepModel passed = new StepModel();
+        passed.name = "a calculator";
+        passed.status = ResultStatus.Passed;
+        caze.steps.add(passed);
+        StepModel failed = new StepModel();
+        failed.name = "the result is 5";
+        failed.order = 1;
+        failed.status = ResultStatus.Failed;
+        failed.startTime = new Date(1700000000500L);
+        failed.endTime = new Date(1700000000750L);
+        failed.failure = new FailureModel();
+        failed.failure.type = "CUCUMBER_ERROR";
+        failed.failure.message = "java.lang.AssertionError: expected:<5> but was:<4>";
+        failed.screenShot = screenshot;
+        caze.steps.add(failed);
+
+        SuiteModel suite = new SuiteModel();
+        suite.cases = new ArrayList<>(Arrays.asList(caze));
+        result.suites = new ArrayList<>(Arrays.asList(suite));
+        return result;
+    }
+}
@@ -0,0 +1,193 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TraceRecorderTest {
+    private static final long ORIGIN = 1000000;
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void overlappingCasesArePlacedOnSeparateLanes() throws IOException {
+        TraceRecorder trace = new TraceRecorder(ORIGIN);
+        // the second case starts while the first one runs, the third one after the first one finished
+        int first = startCase(trace, 0);
+        int second = startCase(trace, 20);
+        trace.add("first step", TraceRecorder.CATEGORY_STEP, at(10), at(50), first);
+        trace.add("second step", TraceRecorder.CATEGORY_STEP, at(50), at(100), first);
+        finishCase(trace, "First", first, 0, 100);
+        trace.add("only step", TraceRecorder.CATEGORY_STEP, at(30), at(80), second);
+        int third = startCase(trace, 100);
+        trace.add("After", TraceRecorder.CATEGORY_HOOK, at(120), at(150), third);
+        finishCase(trace, "Third", third, 100, 150);
+        finishCase(trace, "Second", second, 20, 80);
+        trace.add("reportStatus", TraceRecorder.CATEGORY_PLUGIN, at(80), at(90), TraceRecorder.PLUGIN_THREAD_ID);
+
+        assertEquals(1, first);
+        assertEquals(2, second);
+        assertEquals(1, third);
+        Map<Integer, List<String>> lanes = readLanes(trace);
+        assertEquals(3, lanes.size());
+        assertEquals("[First, first step, second step, Third, After]", lanes.get(1).toString());
+        assertEquals("[Second, only step]", lanes.get(2).toString());
+        assertEquals("[reportStatus]", lanes.get(TraceRecorder.PLUGIN_THREAD_ID).toString());
+    }
+
+    @Test
+    public void casesRecordedConcurrentlyPairUpPerLane() throws Exception {
+        TraceRecorder trace = new TraceRecorder(System.nanoTime());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> runners = new ArrayList<>();
+            for (int runner = 0; runner < 4; runner++) {
+                runners.add(executor.submit(() -> {
+                    // what the adapters do on the thread running the scenario
+                    for (int i = 0; i < 5; i++) {
+                        long start = System.nanoTime();
+                        int lane = trace.acquireLane(start);
+                        long stepStart = System.nanoTime();
+                        sleep();
+                        long stepEnd = System.nanoTime();
+                        trace.add("step", TraceRecorder.CATEGORY_STEP, stepStart, stepEnd, lane);
+                        long end = System.nanoTime();
+                        trace.add("case", TraceRecorder.CATEGORY_CASE, start, end, lane);
+                        trace.releaseLane(lane, end);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> runner : runners)
+                runner.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<Integer, List<String>> lanes = readLanes(trace);
+        int spans = 0;
+        for (Map.Entry<Integer, List<String>> lane : lanes.entrySet()) {
+            assertTrue("Lane " + lane.getKey(), lane.getKey() >= 1);
+            spans += lane.getValue().size();
+        }
+        assertEquals(4 * 5 * 2, spans);
+    }
+
+    private static long at(long micros) {
+        return ORIGIN + micros * 1000;
+    }
+
+    private static int startCase(TraceRecorder trace, long startMicros) {
+        return trace.acquireLane(at(startMicros));
+    }
+
+    private static void finishCase(TraceRecorder trace, String name, int lane, long startMicros, long endMicros) {
+        trace.add(name, TraceRecorder.CATEGORY_CASE, at(startMicros), at(endMicros), lane);
+        trace.releaseLane(lane, at(endMicros));
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the trace, checks that every lane has a name and that its complete events, expanded into begin and end
+     * events, pair up like a call stack. Returns the span names of each lane in begin order.
+     */
+    private Map<Integer, List<String>> readLanes(TraceRecorder trace) throws IOException {
+        File file = workDir.newFile("trace.json");
+        trace.write(file.getPath());
+        JsonNode root = mapper.readTree(file);
+        assertEquals("ms", root.get("displayTimeUnit").textValue());
+
+        Set<Integer> namedLanes = new TreeSet<>();
+        Map<Integer, List<Event>> events = new HashMap<>();
+        for (JsonNode node : root.get("traceEvents")) {
+            int tid = node.get("tid").intValue();
+            assertEquals(1, node.get("pid").intValue());
+            switch (node.get("ph").textValue()) {
+                case "M":
+                    assertEquals("thread_name", node.get("name").textValue());
+                    namedLanes.add(tid);
+                    break;
+                case "X":
+                    double ts = node.get("ts").doubleValue();
+                    double dur = node.get("dur").doubleValue();
+                    assertTrue(ts >= 0 && dur > 0);
+                    String name = node.get("name").textValue();
+                    List<Event> laneEvents = events.computeIfAbsent(tid, id -> new ArrayList<>());
+                    laneEvents.add(new Event(name, true, ts, dur));
+                    laneEvents.add(new Event(name, false, ts + dur, dur));
+                    break;
+                default:
+                    throw new AssertionError("Unexpected event " + node);
+            }
+        }
+        assertTrue(namedLanes.containsAll(events.keySet()));
+
+        Map<Integer, List<String>> lanes = new HashMap<>();
+        for (Map.Entry<Integer, List<Event>> lane : events.entrySet()) {
+            List<Event> laneEvents = lane.getValue();
+            // at the same time a span ends before the next one begins, outer spans begin first and end last
+            laneEvents.sort((a, b) -> a.ts != b.ts ? Double.compare(a.ts, b.ts)
+                    : a.isBegin != b.isBegin ? (a.isBegin ? 1 : -1)
+                    : a.isBegin ? Double.compare(b.dur, a.dur) : Double.compare(a.dur, b.dur));
+            Deque<Event> open = new ArrayDeque<>();
+            List<String> names = new ArrayList<>();
+            for (Event event : laneEvents) {
+                if (event.isBegin) {
+                    open.push(event);
+                    names.add(event.name);
+                } else {
+                    Event begin = open.poll();
+                    assertTrue("Lane " + lane.getKey() + ": " + event.name + " ends while " + (begin != null ? begin.name : "nothing") + " is open",
+                            begin != null && begin.name.equals(event.name) && begin.ts + begin.dur == event.ts);
+                }
+            }
+            assertTrue(open.isEmpty());
+            lanes.put(lane.getKey(), names);
+        }
+        return lanes;
+    }
+
+    private static final class Event {
+        final String name;
+        final boolean isBegin;
+        final double ts;
+        final double dur;
+
+        Event(String name, boolean isBegin, double ts, double dur) {
+            this.name = name;
+            this.isBegin = isBegin;
+            this.ts = ts;
+            this.dur = dur;
+        }
+    }
+}
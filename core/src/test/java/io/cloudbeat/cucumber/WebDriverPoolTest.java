@@ -0,0 +1,197 @@
+package io.cloudbeat.cucumber;
+
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WebDriverPoolTest {
+    private final List<WebDriver> created = new ArrayList<>();
+    // quit() calls per driver, in creation order
+    private final List<AtomicInteger> quitCounts = new ArrayList<>();
+
+    @Test
+    public void reusesReleasedSession() {
+        try (WebDriverPool pool = createPool(2)) {
+            WebDriver driver = pool.lease();
+            pool.release(driver);
+
+            assertSame(driver, pool.lease());
+            assertEquals(1, created.size());
+        }
+    }
+
+    @Test
+    public void quitsIdleSessions() throws InterruptedException {
+        try (WebDriverPool pool = createPool(1).setIdleTimeout(50)) {
+            WebDriver driver = pool.lease();
+            pool.release(driver);
+            Thread.sleep(100);
+
+            assertNotSame(driver, pool.lease());
+            // evicted sessions are quit in the background
+            waitForQuit(0);
+            assertEquals(2, created.size());
+        }
+    }
+
+    @Test
+    public void quitsIdleSessionsWithoutFurtherLeases() throws InterruptedException {
+        try (WebDriverPool pool = createPool(2).setIdleTimeout(50)) {
+            pool.release(pool.lease());
+
+            waitForQuit(0);
+            assertEquals(1, created.size());
+        }
+    }
+
+    @Test
+    public void leaseTimesOutWhenPoolIsExhausted() {
+        try (WebDriverPool pool = createPool(1).setLeaseTimeout(50)) {
+            pool.lease();
+            long start = System.currentTimeMillis();
+            try {
+                pool.lease();
+                fail("Lease should have timed out");
+            } catch (IllegalStateException e) {
+                assertTrue(System.currentTimeMillis() - start >= 50);
+            }
+        }
+    }
+
+    @Test
+    public void waitingLeaseGetsReleasedSession() throws InterruptedException {
+        try (WebDriverPool pool = createPool(1)) {
+            WebDriver driver = pool.lease();
+            AtomicReference<WebDriver> waitingLease = new AtomicReference<>();
+            Thread thread = new Thread(() -> waitingLease.set(pool.lease()));
+            thread.start();
+            Thread.sleep(50);
+            pool.release(driver);
+            thread.join(5000);
+
+            assertSame(driver, waitingLease.get());
+        }
+    }
+
+    @Test
+    public void secondReleaseIsIgnored() {
+        try (WebDriverPool pool = createPool(2).setLeaseTimeout(50)) {
+            WebDriver driver = pool.lease();
+            pool.release(driver);
+            pool.release(driver);
+
+            assertSame(driver, pool.lease());
+            WebDriver other = pool.lease();
+            assertNotSame(driver, other);
+            try {
+                pool.lease();
+                fail("Pool should be exhausted");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void replacesUnhealthySessions() {
+        try (WebDriverPool pool = createPool(1)) {
+            WebDriver driver = pool.lease();
+            pool.release(driver);
+            pool.setHealthCheck(d -> false);
+
+            assertNotSame(driver, pool.lease());
+            assertEquals(1, quitCounts.get(0).get());
+        }
+    }
+
+    @Test
+    public void quitsSessionsFailingReset() {
+        try (WebDriverPool pool = createPool(1).setLeaseTimeout(50)) {
+            pool.setReset(d -> {
+                throw new IllegalStateException("expected");
+            });
+            WebDriver driver = pool.lease();
+            pool.release(driver);
+
+            assertEquals(1, quitCounts.get(0).get());
+            assertNotSame(driver, pool.lease());
+        }
+    }
+
+    @Test
+    public void closeQuitsIdleAndLeasedSessions() {
+        WebDriverPool pool = createPool(2);
+        WebDriver first = pool.lease();
+        WebDriver second = pool.lease();
+        pool.release(first);
+        pool.close();
+
+        assertEquals(1, quitCounts.get(0).get());
+        assertEquals(1, quitCounts.get(1).get());
+        // returning a session after close does not quit it again
+        pool.release(second);
+        assertEquals(1, quitCounts.get(1).get());
+    }
+
+    @Test
+    public void replacedPoolIsClosed() {
+        try {
+            CucumberRunner.setWebDriverPool(createPool(1));
+            WebDriver driver = CucumberRunner.leaseWebDriver();
+            CucumberRunner.setWebDriverPool(createPool(1));
+
+            assertEquals(1, quitCounts.get(0).get());
+            CucumberRunner.releaseWebDriver();
+            assertNotSame(driver, CucumberRunner.leaseWebDriver());
+            CucumberRunner.releaseWebDriver();
+        } finally {
+            CucumberRunner.setWebDriverPool(null);
+        }
+        assertEquals(1, quitCounts.get(1).get());
+    }
+
+    private WebDriverPool createPool(int maxSize) {
+        return new WebDriverPool(this::createDriver, maxSize)
+                .setHealthCheck(driver -> true)
+                .setReset(driver -> { });
+    }
+
+    private synchronized WebDriver createDriver() {
+        AtomicInteger quitCount = new AtomicInteger();
+        WebDriver driver = (WebDriver)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { WebDriver.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "quit":
+                    quitCount.incrementAndGet();
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "fake driver";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        created.add(driver);
+        quitCounts.add(quitCount);
+        return driver;
+    }
+
+    private void waitForQuit(int driverIndex) throws InterruptedException {
+        for (int i = 0; i < 100 && quitCounts.get(driverIndex).get() == 0; i++)
+            Thread.sleep(10);
+        assertEquals(1, quitCounts.get(driverIndex).get());
+    }
+}
@@ -0,0 +1,23 @@
+@calculator
+Feature: Calculator
+
+  Background:
+    Given a calculator
+
+  Scenario: Adding two numbers
+    When I add 2 and 3
+    Then the result is 5
+
+  @failing
+  Scenario: Failing assertion
+    When I add 2 and 2
+    Then the result is 5
+
+  Scenario Outline: Multiplying <a> by <b>
+    When I multiply <a> and <b>
+    Then the result is <result>
+
+    Examples:
+      | a | b | result |
+      | 2 | 3 | 6      |
+      | 4 | 5 | 20     |
@@ -0,0 +1,11 @@
+Feature: Division
+
+  Scenario: Dividing two numbers
+    Given a calculator
+    When I divide 6 by 3
+    Then the result is 2
+
+  Scenario: Steps after an exception are skipped
+    Given a calculator
+    When I divide 1 by 0
+    Then the result is 0
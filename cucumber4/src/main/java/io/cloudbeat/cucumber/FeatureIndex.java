@@ -0,0 +1,141 @@
+package io.cloudbeat.cucumber;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the plugin needs to know about a feature file, indexed by line.
+ * Unlike the Gherkin AST it has a compact binary form, so it can be cached across runs.
+ */
+final class FeatureIndex {
+    static final byte KIND_SCENARIO = 1;
+    static final byte KIND_EXAMPLES_HEADER = 2;
+    static final byte KIND_EXAMPLES_ROW = 3;
+    static final byte KIND_STEP = 4;
+    static final byte KIND_BACKGROUND_STEP = 5;
+
+    String language;
+    String featureKeyword;
+    String featureName;
+    String featureDescription;
+    int featureLine;
+    List<String> featureTags = new ArrayList<>();
+
+    // 0 if the feature has no background
+    int backgroundLine;
+    String backgroundKeyword;
+    String backgroundName;
+    String backgroundDescription;
+
+    final Map<Integer, Node> nodes = new HashMap<>();
+
+    static final class Node {
+        final byte kind;
+        // step keyword, or keyword of the scenario definition for scenarios and example rows
+        final String keyword;
+        final String description;
+        // precomputed Cucumber JSON id, only for scenarios and example rows
+        final String id;
+
+        Node(byte kind, String keyword, String description, String id) {
+            this.kind = kind;
+            this.keyword = keyword;
+            this.description = description;
+            this.id = id;
+        }
+
+        boolean isBackgroundStep() {
+            return kind == KIND_BACKGROUND_STEP;
+        }
+    }
+
+    boolean hasBackground() {
+        return backgroundLine > 0;
+    }
+
+    Node getNode(int line) {
+        return nodes.get(line);
+    }
+
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + nodes.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, language);
+        writeString(out, featureKeyword);
+        writeString(out, featureName);
+        writeString(out, featureDescription);
+        out.writeInt(featureLine);
+        out.writeInt(featureTags.size());
+        for (String tag : featureTags)
+            writeString(out, tag);
+        out.writeInt(backgroundLine);
+        writeString(out, backgroundKeyword);
+        writeString(out, backgroundName);
+        writeString(out, backgroundDescription);
+        out.writeInt(nodes.size());
+        for (Map.Entry<Integer, Node> entry : nodes.entrySet()) {
+            Node node = entry.getValue();
+            out.writeInt(entry.getKey());
+            out.writeByte(node.kind);
+            writeString(out, node.keyword);
+            writeString(out, node.description);
+            writeString(out, node.id);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static FeatureIndex fromBytes(ByteBuffer in) {
+        FeatureIndex index = new FeatureIndex();
+        index.language = readString(in);
+        index.featureKeyword = readString(in);
+        index.featureName = readString(in);
+        index.featureDescription = readString(in);
+        index.featureLine = in.getInt();
+        int tagCount = in.getInt();
+        for (int i = 0; i < tagCount; i++)
+            index.featureTags.add(readString(in));
+        index.backgroundLine = in.getInt();
+        index.backgroundKeyword = readString(in);
+        index.backgroundName = readString(in);
+        index.backgroundDescription = readString(in);
+        int nodeCount = in.getInt();
+        for (int i = 0; i < nodeCount; i++) {
+            int line = in.getInt();
+            byte kind = in.get();
+            index.nodes.put(line, new Node(kind, readString(in), readString(in), readString(in)));
+        }
+        if (in.hasRemaining() || index.featureKeyword == null || index.featureName == null)
+            throw new IllegalArgumentException("Corrupt feature index");
+        return index;
+    }
+
+    // length prefixed UTF-8, -1 for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        if (length > in.remaining())
+            throw new IllegalArgumentException("Corrupt feature index");
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,237 @@
+package io.cloudbeat.cucumber;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk cache of {@link FeatureIndex}es keyed by a hash of the feature source, so unchanged feature files are not parsed again.
+ * <p>
+ * File layout: magic, version, entry count, then a table of (hash, offset, length) followed by the serialized indexes.
+ * The file is memory mapped and only the entries which are actually requested are decoded.
+ */
+final class FeatureIndexCache {
+    private static final int MAGIC = 0x43424649; // CBFI
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 20;
+    private static final int HEADER_LENGTH = 12;
+    private static final int TABLE_ENTRY_LENGTH = HASH_LENGTH + 8;
+    // entries not used by the current run are dropped once the cache grows above this
+    private static final int MAX_ENTRIES = 20000;
+
+    private final Path path;
+    private MappedByteBuffer mapped;
+    private final Map<String, long[]> table = new HashMap<>();
+    private final Map<String, FeatureIndex> added = new LinkedHashMap<>();
+    private final Set<String> used = new HashSet<>();
+
+    FeatureIndexCache(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Maps the cache file. A missing file results in an empty cache, an unreadable or corrupt one in an empty cache and an exception.
+     */
+    void load() throws IOException {
+        if (!Files.exists(path))
+            return;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            readTable();
+        } catch (IOException e) {
+            unmap();
+            throw e;
+        } catch (RuntimeException e) {
+            unmap();
+            throw new IOException("Corrupt feature index cache " + path + ": " + e, e);
+        }
+    }
+
+    private void readTable() throws IOException {
+        int size = mapped.capacity();
+        if (size < HEADER_LENGTH || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION)
+            throw new IOException("Unsupported feature index cache format: " + path);
+        int count = mapped.getInt(8);
+        if (count < 0 || HEADER_LENGTH + (long)count * TABLE_ENTRY_LENGTH > size)
+            throw new IOException("Corrupt feature index cache " + path + ": invalid entry count " + count);
+        byte[] hash = new byte[HASH_LENGTH];
+        for (int i = 0; i < count; i++) {
+            int pos = HEADER_LENGTH + i * TABLE_ENTRY_LENGTH;
+            ByteBuffer entry = mapped.duplicate();
+            entry.position(pos);
+            entry.get(hash);
+            long offset = entry.getInt();
+            long length = entry.getInt();
+            if (offset < 0 || length < 0 || offset + length > size)
+                throw new IOException("Corrupt feature index cache " + path + ": entry " + i + " is out of bounds");
+            table.put(toHex(hash), new long[] { offset, length });
+        }
+    }
+
+    static String hash(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return toHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    FeatureIndex get(String hash) {
+        FeatureIndex index = added.get(hash);
+        if (index != null) {
+            used.add(hash);
+            return index;
+        }
+        long[] location = table.get(hash);
+        if (location == null)
+            return null;
+        ByteBuffer entry = mapped.duplicate();
+        entry.position((int)location[0]);
+        entry.limit((int)(location[0] + location[1]));
+        try {
+            index = FeatureIndex.fromBytes(entry.slice());
+        } catch (RuntimeException e) {
+            // treat a corrupt entry as a miss, the feature is parsed again and the entry replaced on save
+            table.remove(hash);
+            return null;
+        }
+        used.add(hash);
+        return index;
+    }
+
+    void put(String hash, FeatureIndex index) {
+        added.put(hash, index);
+        used.add(hash);
+    }
+
+    boolean isModified() {
+        return !added.isEmpty();
+    }
+
+    /**
+     * Writes entries used by this run plus as many of the remaining old entries as fit, replacing the cache file.
+     * The old file is unmapped first, so the cache can't be read afterwards.
+     */
+    void save() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, FeatureIndex> entry : added.entrySet())
+            entries.put(entry.getKey(), entry.getValue().toBytes());
+        for (String hash : used) {
+            if (!entries.containsKey(hash) && table.containsKey(hash))
+                entries.put(hash, readRaw(hash));
+        }
+        for (String hash : table.keySet()) {
+            if (entries.size() >= MAX_ENTRIES)
+                break;
+            if (!entries.containsKey(hash))
+                entries.put(hash, readRaw(hash));
+        }
+
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream(HEADER_LENGTH + entries.size() * TABLE_ENTRY_LENGTH);
+        DataOutputStream out = new DataOutputStream(tableBytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        int offset = HEADER_LENGTH + entries.size() * TABLE_ENTRY_LENGTH;
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            out.write(fromHex(entry.getKey()));
+            out.writeInt(offset);
+            out.writeInt(entry.getValue().length);
+            offset += entry.getValue().length;
+        }
+        out.flush();
+
+        unmap();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (OutputStream file = Files.newOutputStream(tmp)) {
+            tableBytes.writeTo(file);
+            for (byte[] data : entries.values())
+                file.write(data);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the mapping of the cache file, Windows doesn't allow replacing a mapped file. Best effort, without access
+     * to the JDK internals the mapping is released when the buffer is garbage collected.
+     */
+    private void unmap() {
+        MappedByteBuffer buffer = mapped;
+        mapped = null;
+        table.clear();
+        if (buffer == null)
+            return;
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+        } catch (NoSuchMethodException e) {
+            // Java 8
+            try {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+            }
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+        }
+    }
+
+    private byte[] readRaw(String hash) {
+        long[] location = table.get(hash);
+        byte[] data = new byte[(int)location[1]];
+        ByteBuffer entry = mapped.duplicate();
+        entry.position((int)location[0]);
+        entry.get(data);
+        return data;
+    }
+
+    private static String toHex(byte[] bytes) {
+        return String.format("%0" + (bytes.length * 2) + "x", new BigInteger(1, bytes));
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte)Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        return bytes;
+    }
+}
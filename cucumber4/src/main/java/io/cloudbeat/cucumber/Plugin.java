@@ -0,0 +1,595 @@
+package io.cloudbeat.cucumber;
+
+import cucumber.api.*;
+import cucumber.api.event.EmbedEvent;
+import cucumber.api.event.Event;
+import cucumber.api.event.EventHandler;
+import cucumber.api.event.ConcurrentEventListener;
+import cucumber.api.event.EventPublisher;
+import cucumber.api.event.TestCaseStarted;
+import cucumber.api.event.TestCaseFinished;
+import cucumber.api.event.TestRunFinished;
+import cucumber.api.event.TestSourceRead;
+import cucumber.api.event.TestStepFinished;
+import cucumber.api.event.TestStepStarted;
+import gherkin.pickles.Argument;
+import gherkin.pickles.PickleCell;
+import gherkin.pickles.PickleRow;
+import gherkin.pickles.PickleString;
+import gherkin.pickles.PickleTable;
+import gherkin.pickles.PickleTag;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cucumber 4 adapter. Registered as a concurrent listener so that events arrive live, on the thread running the scenario,
+ * rather than buffered until the end of the run. Per thread screenshots, console capture and WebDriver leases depend on that.
+ * A scenario runs entirely on one thread, so the state of the running case is kept per thread.
+ * <p>
+ * Event handlers do the thread bound work and pass the event on. With {@code eventbuffersize} set, the rest (building
+ * the feature maps, feature file lookups and reporting statuses) is done by the consumer thread
+ * of an {@link EventRing}, otherwise right away on the runner thread.
+ */
+public final class Plugin implements ConcurrentEventListener {
+    // feature uri -> feature map, put in (uri, line) order at the end of the run
+    private final Map<String, Map<String, Object>> featureMaps = new HashMap<String, Map<String, Object>>();
+    // runner thread id -> state of the case running on it
+    private final Map<Long, CaseState> runningCases = new ConcurrentHashMap<Long, CaseState>();
+    private final FeatureIndexCache featureCache;
+    private final TestSourcesModel testSources;
+    private final ResultReporter reporter;
+    private final TraceRecorder trace;
+    private EventRing<EventSlot> events;
+
+    private EventHandler<TestSourceRead> testSourceReadHandler = event -> publish(claim(event));
+    private EventHandler<TestCaseStarted> caseStartedHandler = event -> onTestCaseStarted(event);
+    private EventHandler<TestCaseFinished> caseFinishedHandler = event -> onTestCaseFinished(event);
+    private EventHandler<TestCaseFinished> releaseWebDriverHandler = event -> CucumberRunner.releaseWebDriver();
+    private EventHandler<TestStepStarted> stepStartedHandler = event -> onTestStepStarted(event);
+    private EventHandler<TestStepFinished> stepFinishedHandler = event -> onTestStepFinished(event);
+    private EventHandler<TestRunFinished> runFinishedHandler = event -> finishReport();
+    private EventHandler<EmbedEvent> embedEventhandler = event -> publish(claim(event));
+
+    private static final class CaseState {
+        final String featureFile;
+        final List<Map<String, Object>> elementsList;
+        final Map<String, Object> testCaseMap;
+        Map<String, Object> backgroundMap;
+        Map<String, Object> elementMap;
+        List<Map<String, Object>> stepsList;
+        Map<String, Object> currentStepOrHookMap;
+        final Map<String, Object> beforeStepHookList = new HashMap<String, Object>();
+        int lane;
+
+        CaseState(String featureFile, List<Map<String, Object>> elementsList, Map<String, Object> testCaseMap, Map<String, Object> backgroundMap) {
+            this.featureFile = featureFile;
+            this.elementsList = elementsList;
+            this.testCaseMap = testCaseMap;
+            this.backgroundMap = backgroundMap;
+            this.elementMap = backgroundMap != null ? backgroundMap : testCaseMap;
+            this.stepsList = (List<Map<String, Object>>) elementMap.get("steps");
+        }
+    }
+
+    private static final class EventSlot extends EventRing.Slot {
+        Event event;
+        long threadId;
+        // taken on the runner thread: start timestamp, memory samples and result cache lookup of a case
+        Map<String, Object> caseAttributes;
+        byte[] screenshot;
+        String log;
+
+        @Override
+        protected void clear() {
+            event = null;
+            caseAttributes = null;
+            screenshot = null;
+            log = null;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Plugin(String arg) {
+        reporter = ResultReporter.create();
+        trace = reporter.getTrace();
+        featureCache = loadFeatureCache(System.getProperty("featurecachepath"));
+        testSources = new TestSourcesModel(featureCache);
+    }
+
+    private static FeatureIndexCache loadFeatureCache(String path) {
+        if (path == null)
+            return null;
+        FeatureIndexCache cache = new FeatureIndexCache(Paths.get(path));
+        try {
+            cache.load();
+        } catch (IOException | RuntimeException e) {
+            // start over with an empty cache, the file is replaced at the end of the run
+            System.err.println("[CloudBeat] Unable to read feature cache " + path + ": " + e.getMessage());
+        }
+        return cache;
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        if (!reporter.isInitialized()) {
+            // the WebDriver pool works without reporting as well
+            publisher.registerHandlerFor(TestCaseFinished.class, releaseWebDriverHandler);
+            return;
+        }
+        int eventBufferSize = Integer.getInteger("eventbuffersize", 0);
+        if (eventBufferSize > 0)
+            events = new EventRing<EventSlot>(eventBufferSize, EventSlot::new, this::handleEvent);
+        publisher.registerHandlerFor(TestSourceRead.class, testSourceReadHandler);
+        publisher.registerHandlerFor(TestCaseStarted.class, caseStartedHandler);
+        publisher.registerHandlerFor(TestCaseFinished.class, caseFinishedHandler);
+        publisher.registerHandlerFor(TestStepStarted.class, stepStartedHandler);
+        publisher.registerHandlerFor(TestStepFinished.class, stepFinishedHandler);
+        publisher.registerHandlerFor(EmbedEvent.class, embedEventhandler);
+        publisher.registerHandlerFor(TestRunFinished.class, runFinishedHandler);
+    }
+
+    private EventSlot claim(Event event) {
+        EventSlot slot = events != null ? events.claim() : new EventSlot();
+        slot.event = event;
+        slot.threadId = Thread.currentThread().getId();
+        return slot;
+    }
+
+    private void publish(EventSlot slot) {
+        if (events != null)
+            events.publish(slot);
+        else
+            handleEvent(slot);
+    }
+
+    private void onTestCaseStarted(TestCaseStarted event) {
+        // skipped by CucumberRunner.skipIfNeeded, not part of the partial results
+        if (reporter.isCanceled())
+            return;
+        Map<String, Object> caseAttributes = new HashMap<String, Object>();
+        caseAttributes.put("start_timestamp", event.getTimeStamp());
+        MemorySample memory = reporter.sampleMemory();
+        if (memory != null)
+            caseAttributes.put("start_memory", memory);
+        reporter.checkResultCache(caseAttributes, () -> getPickleText(event.testCase));
+        reporter.caseStarted(event.testCase.getScenarioDesignation(), event.testCase.getName(), countSteps(event.testCase));
+        EventSlot slot = claim(event);
+        slot.caseAttributes = caseAttributes;
+        publish(slot);
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        Map<String, Object> caseAttributes = new HashMap<String, Object>();
+        MemorySample memory = reporter.sampleMemory();
+        if (memory != null)
+            caseAttributes.put("end_memory", memory);
+        reporter.caseFinished(caseAttributes);
+        CucumberRunner.releaseWebDriver();
+        EventSlot slot = claim(event);
+        slot.caseAttributes = caseAttributes;
+        publish(slot);
+    }
+
+    private void onTestStepStarted(TestStepStarted event) {
+        reporter.stepStarted(event.testStep instanceof HookTestStep);
+        publish(claim(event));
+    }
+
+    private void onTestStepFinished(TestStepFinished event) {
+        byte[] screenshot = null;
+        String log = null;
+        if (event.result.is(Result.Type.FAILED)) {
+            screenshot = reporter.takeScreenshot();
+            log = reporter.getStepLog();
+        }
+        EventSlot slot = claim(event);
+        slot.screenshot = screenshot;
+        slot.log = log;
+        publish(slot);
+    }
+
+    private void handleEvent(EventSlot slot) {
+        if (slot.event instanceof TestSourceRead)
+            handleTestSourceRead((TestSourceRead)slot.event);
+        else if (slot.event instanceof TestCaseStarted)
+            handleTestCaseStarted((TestCaseStarted)slot.event, slot);
+        else if (slot.event instanceof TestCaseFinished)
+            handleTestCaseFinished((TestCaseFinished)slot.event, slot);
+        else if (slot.event instanceof TestStepStarted)
+            handleTestStepStarted((TestStepStarted)slot.event, slot);
+        else if (slot.event instanceof TestStepFinished)
+            handleTestStepFinished((TestStepFinished)slot.event, slot);
+        else if (slot.event instanceof EmbedEvent)
+            handleEmbed((EmbedEvent)slot.event, slot);
+    }
+
+    private void handleTestSourceRead(TestSourceRead event) {
+        testSources.addTestSourceReadEvent(event.uri, event);
+    }
+
+    private void handleTestCaseStarted(TestCaseStarted event, EventSlot slot) {
+        String featureFile = event.testCase.getUri();
+        Map<String, Object> testCaseMap = createTestCase(featureFile, event.testCase);
+        testCaseMap.putAll(slot.caseAttributes);
+        Map<String, Object> backgroundMap = null;
+        if (testSources.hasBackground(featureFile, event.testCase.getLine()))
+            backgroundMap = createBackground(featureFile);
+
+        List<Map<String, Object>> elementsList;
+        synchronized (featureMaps) {
+            Map<String, Object> featureMap = featureMaps.get(featureFile);
+            if (featureMap == null) {
+                featureMap = createFeatureMap(event.testCase);
+                featureMaps.put(featureFile, featureMap);
+            }
+            elementsList = (List<Map<String, Object>>) featureMap.get("elements");
+            if (backgroundMap != null)
+                elementsList.add(backgroundMap);
+            elementsList.add(testCaseMap);
+        }
+
+        CaseState state = new CaseState(featureFile, elementsList, testCaseMap, backgroundMap);
+        if (trace != null)
+            state.lane = trace.acquireLane(event.getTimeStamp());
+        runningCases.put(slot.threadId, state);
+    }
+
+    private void handleTestCaseFinished(TestCaseFinished event, EventSlot slot) {
+        CaseState state = runningCases.remove(slot.threadId);
+        if (state == null)
+            return;
+        state.testCaseMap.put("end_timestamp", event.getTimeStamp());
+        state.testCaseMap.putAll(slot.caseAttributes);
+        if (trace != null) {
+            trace.add(event.testCase.getName(), TraceRecorder.CATEGORY_CASE, (long)state.testCaseMap.get("start_timestamp"), event.getTimeStamp(), state.lane);
+            trace.releaseLane(state.lane, event.getTimeStamp());
+        }
+
+        reporter.reportCaseStatus(event.testCase.getScenarioDesignation(), event.testCase.getUri() + ":" + event.testCase.getLine(), state.testCaseMap);
+        if (reporter.collapseCase(state.testCaseMap) && state.backgroundMap != null) {
+            synchronized (featureMaps) {
+                state.elementsList.remove(state.backgroundMap);
+            }
+        }
+    }
+
+    private void handleTestStepStarted(TestStepStarted event, EventSlot slot) {
+        CaseState state = runningCases.get(slot.threadId);
+        if (state == null)
+            return;
+        if (event.testStep instanceof PickleStepTestStep) {
+            PickleStepTestStep testStep = (PickleStepTestStep) event.testStep;
+            if (isFirstStepAfterBackground(state, testStep)) {
+                state.elementMap = state.testCaseMap;
+                state.stepsList = (List<Map<String, Object>>) state.elementMap.get("steps");
+            }
+            state.currentStepOrHookMap = createTestStep(state.featureFile, testStep);
+            state.currentStepOrHookMap.put("start_timestamp", event.getTimeStamp());
+            //add beforeSteps list to current step
+            if (state.beforeStepHookList.containsKey(HookType.Before.toString())) {
+                state.currentStepOrHookMap.put(HookType.Before.toString(), state.beforeStepHookList.get(HookType.Before.toString()));
+                state.beforeStepHookList.clear();
+            }
+            state.stepsList.add(state.currentStepOrHookMap);
+        } else if(event.testStep instanceof HookTestStep) {
+            HookTestStep hookTestStep = (HookTestStep) event.testStep;
+            state.currentStepOrHookMap = createHookStep(hookTestStep);
+            state.currentStepOrHookMap.put("start_timestamp", event.getTimeStamp());
+            addHookStepToTestCaseMap(state, state.currentStepOrHookMap, hookTestStep.getHookType());
+        } else {
+            throw new IllegalStateException();
+        }
+    }
+
+    private void handleEmbed(EmbedEvent event, EventSlot slot) {
+        CaseState state = runningCases.get(slot.threadId);
+        if (state == null || state.currentStepOrHookMap == null)
+            return;
+        addEmbeddingToHookMap(state.currentStepOrHookMap, event.data, event.mimeType);
+    }
+
+    private void handleTestStepFinished(TestStepFinished event, EventSlot slot) {
+        CaseState state = runningCases.get(slot.threadId);
+        if (state == null || state.currentStepOrHookMap == null)
+            return;
+        Map<String, Object> currentStepOrHookMap = state.currentStepOrHookMap;
+        currentStepOrHookMap.put("match", createMatchMap(event.testStep, event.result));
+        currentStepOrHookMap.put("result", createResultMap(event.result));
+        currentStepOrHookMap.put("end_timestamp", event.getTimeStamp());
+        if (slot.screenshot != null)
+            currentStepOrHookMap.put("screenshot", slot.screenshot);
+        if (slot.log != null)
+            currentStepOrHookMap.put("log", slot.log);
+        if (trace != null) {
+            long stepStart = (long)currentStepOrHookMap.get("start_timestamp");
+            if (event.testStep instanceof PickleStepTestStep)
+                trace.add(((PickleStepTestStep)event.testStep).getStepText(), TraceRecorder.CATEGORY_STEP, stepStart, event.getTimeStamp(), state.lane);
+            else if (event.testStep instanceof HookTestStep)
+                trace.add(((HookTestStep)event.testStep).getHookType().toString(), TraceRecorder.CATEGORY_HOOK, stepStart, event.getTimeStamp(), state.lane);
+        }
+    }
+
+    private static int countSteps(TestCase testCase) {
+        int count = 0;
+        for (TestStep testStep : testCase.getTestSteps()) {
+            if (testStep instanceof PickleStepTestStep)
+                count++;
+        }
+        return count;
+    }
+
+    private static String getPickleText(TestCase testCase) {
+        StringBuilder sb = new StringBuilder(testCase.getName()).append('\n');
+        for (PickleTag tag : testCase.getTags())
+            sb.append(tag.getName()).append('\n');
+        for (TestStep testStep : testCase.getTestSteps()) {
+            if (!(testStep instanceof PickleStepTestStep))
+                continue;
+            PickleStepTestStep pickleStep = (PickleStepTestStep)testStep;
+            sb.append(pickleStep.getStepText()).append('\n');
+            for (Argument argument : pickleStep.getStepArgument()) {
+                if (argument instanceof PickleString)
+                    sb.append(((PickleString)argument).getContent()).append('\n');
+                else if (argument instanceof PickleTable) {
+                    for (PickleRow row : ((PickleTable)argument).getRows()) {
+                        for (PickleCell cell : row.getCells())
+                            sb.append('|').append(cell.getValue());
+                        sb.append('\n');
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private void finishReport() {
+        // everything published before the end of the run has to be in the results
+        if (events != null)
+            events.close();
+        List<Map<String, Object>> features;
+        synchronized (featureMaps) {
+            features = new ArrayList<Map<String, Object>>(featureMaps.values());
+        }
+        // parallel runs start scenarios in any order, sort them like the Cucumber 7 adapter does
+        features.sort(Comparator.comparing(feature -> (String)feature.get("uri")));
+        for (Map<String, Object> feature : features)
+            sortElements((List<Map<String, Object>>)feature.get("elements"));
+        reporter.finishReport(features);
+        if (featureCache != null && featureCache.isModified()) {
+            try {
+                featureCache.save();
+            } catch (IOException e) {
+                System.err.println("[CloudBeat] Unable to write feature cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sorts the scenarios of a feature by line, keeping each background right before its scenario
+     * and the attempts of a rerun scenario in the order they ran.
+     */
+    private static void sortElements(List<Map<String, Object>> elements) {
+        List<List<Map<String, Object>>> cases = new ArrayList<List<Map<String, Object>>>();
+        List<Map<String, Object>> current = new ArrayList<Map<String, Object>>();
+        for (Map<String, Object> element : elements) {
+            current.add(element);
+            if (!"background".equals(element.get("type"))) {
+                cases.add(current);
+                current = new ArrayList<Map<String, Object>>();
+            }
+        }
+        cases.sort(Comparator.comparingInt(elementsOfCase -> (int)elementsOfCase.get(elementsOfCase.size() - 1).get("line")));
+        elements.clear();
+        for (List<Map<String, Object>> elementsOfCase : cases)
+            elements.addAll(elementsOfCase);
+        elements.addAll(current);
+    }
+
+    private Map<String, Object> createFeatureMap(TestCase testCase) {
+        Map<String, Object> featureMap = new HashMap<String, Object>();
+        featureMap.put("uri", testCase.getUri());
+        featureMap.put("elements", new ArrayList<Map<String, Object>>());
+        FeatureIndex feature = testSources.getFeatureIndex(testCase.getUri());
+        if (feature != null) {
+            featureMap.put("keyword", feature.featureKeyword);
+            featureMap.put("name", feature.featureName);
+            featureMap.put("description", feature.featureDescription != null ? feature.featureDescription : "");
+            featureMap.put("line", feature.featureLine);
+            featureMap.put("id", TestSourcesModel.convertToId(feature.featureName));
+            List<Map<String, Object>> tagList = new ArrayList<Map<String, Object>>();
+            for (String tag : feature.featureTags) {
+                Map<String, Object> tagMap = new HashMap<String, Object>();
+                tagMap.put("name", tag);
+                tagList.add(tagMap);
+            }
+            featureMap.put("tags", tagList);
+        }
+        return featureMap;
+    }
+
+    private Map<String, Object> createTestCase(String featureFile, TestCase testCase) {
+        Map<String, Object> testCaseMap = new HashMap<String, Object>();
+        testCaseMap.put("name", testCase.getName());
+        testCaseMap.put("line", testCase.getLine());
+        testCaseMap.put("type", "scenario");
+        testCaseMap.put("cucumberId", ResultReporter.getCucumberScenarioId(testCase.getScenarioDesignation()));
+        FeatureIndex.Node node = testSources.getNode(featureFile, testCase.getLine());
+        if (node != null) {
+            testCaseMap.put("id", node.id);
+            testCaseMap.put("keyword", node.keyword);
+            testCaseMap.put("description", node.description != null ? node.description : "");
+        }
+        testCaseMap.put("steps", new ArrayList<Map<String, Object>>());
+        if (!testCase.getTags().isEmpty()) {
+            List<Map<String, Object>> tagList = new ArrayList<Map<String, Object>>();
+            for (PickleTag tag : testCase.getTags()) {
+                Map<String, Object> tagMap = new HashMap<String, Object>();
+                tagMap.put("name", tag.getName());
+                tagList.add(tagMap);
+            }
+            testCaseMap.put("tags", tagList);
+        }
+        return testCaseMap;
+    }
+
+    private Map<String, Object> createBackground(String featureFile) {
+        FeatureIndex feature = testSources.getFeatureIndex(featureFile);
+        if (feature != null && feature.hasBackground()) {
+            Map<String, Object> testCaseMap = new HashMap<String, Object>();
+            testCaseMap.put("name", feature.backgroundName);
+            testCaseMap.put("line", feature.backgroundLine);
+            testCaseMap.put("type", "background");
+            testCaseMap.put("keyword", feature.backgroundKeyword);
+            testCaseMap.put("description", feature.backgroundDescription != null ? feature.backgroundDescription : "");
+            testCaseMap.put("steps", new ArrayList<Map<String, Object>>());
+            return testCaseMap;
+        }
+        return null;
+    }
+
+    private boolean isFirstStepAfterBackground(CaseState state, PickleStepTestStep testStep) {
+        FeatureIndex.Node node = testSources.getNode(state.featureFile, testStep.getStepLine());
+        if (node != null) {
+            if (state.elementMap != state.testCaseMap && !node.isBackgroundStep()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Object> createTestStep(String featureFile, PickleStepTestStep testStep) {
+        Map<String, Object> stepMap = new HashMap<String, Object>();
+        stepMap.put("name", testStep.getStepText());
+        stepMap.put("line", testStep.getStepLine());
+        FeatureIndex.Node node = testSources.getNode(featureFile, testStep.getStepLine());
+        if (!testStep.getStepArgument().isEmpty()) {
+            Argument argument = testStep.getStepArgument().get(0);
+            if (argument instanceof PickleString) {
+                stepMap.put("doc_string", createDocStringMap(argument));
+            } else if (argument instanceof PickleTable) {
+                stepMap.put("rows", createDataTableList(argument));
+            }
+        }
+        if (node != null) {
+            stepMap.put("keyword", node.keyword);
+        }
+
+        return stepMap;
+    }
+
+    private Map<String, Object> createDocStringMap(Argument argument) {
+        Map<String, Object> docStringMap = new HashMap<String, Object>();
+        PickleString docString = ((PickleString)argument);
+        docStringMap.put("value", docString.getContent());
+        docStringMap.put("line", docString.getLocation().getLine());
+        docStringMap.put("content_type", docString.getContentType());
+        return docStringMap;
+    }
+
+    private List<Map<String, Object>> createDataTableList(Argument argument) {
+        List<Map<String, Object>> rowList = new ArrayList<Map<String, Object>>();
+        for (PickleRow row : ((PickleTable)argument).getRows()) {
+            Map<String, Object> rowMap = new HashMap<String, Object>();
+            rowMap.put("cells", createCellList(row));
+            rowList.add(rowMap);
+        }
+        return rowList;
+    }
+
+    private List<String> createCellList(PickleRow row) {
+        List<String> cells = new ArrayList<String>();
+        for (PickleCell cell : row.getCells()) {
+            cells.add(cell.getValue());
+        }
+        return cells;
+    }
+
+    private Map<String, Object> createHookStep(HookTestStep hookTestStep) {
+        return new HashMap<String, Object>();
+    }
+
+    private void addHookStepToTestCaseMap(CaseState state, Map<String, Object> currentStepOrHookMap, HookType hookType) {
+        String hookName;
+        if (hookType.toString().contains("after"))
+            hookName = "after";
+        else
+            hookName = "before";
+
+
+        Map<String, Object> mapToAddTo;
+        switch (hookType) {
+            case Before:
+                mapToAddTo = state.testCaseMap;
+                break;
+            case After:
+                mapToAddTo = state.testCaseMap;
+                break;
+            case BeforeStep:
+                mapToAddTo = state.beforeStepHookList;
+                break;
+            case AfterStep:
+                mapToAddTo = state.stepsList.get(state.stepsList.size() - 1);
+                break;
+            default:
+                mapToAddTo = state.testCaseMap;
+        }
+
+        if (!mapToAddTo.containsKey(hookName)) {
+            mapToAddTo.put(hookName, new ArrayList<Map<String, Object>>());
+        }
+        ((List<Map<String, Object>>)mapToAddTo.get(hookName)).add(currentStepOrHookMap);
+    }
+
+    private void addEmbeddingToHookMap(Map<String, Object> currentStepOrHookMap, byte[] data, String mimeType) {
+        if (!currentStepOrHookMap.containsKey("embeddings")) {
+            currentStepOrHookMap.put("embeddings", new ArrayList<Map<String, Object>>());
+        }
+        Map<String, Object> embedMap = createEmbeddingMap(data, mimeType);
+        ((List<Map<String, Object>>)currentStepOrHookMap.get("embeddings")).add(embedMap);
+    }
+
+    private Map<String, Object> createEmbeddingMap(byte[] data, String mimeType) {
+        Map<String, Object> embedMap = new HashMap<String, Object>();
+        embedMap.put("mime_type", mimeType);
+        embedMap.put("data", data);
+        return embedMap;
+    }
+
+    private Map<String, Object> createMatchMap(TestStep step, Result result) {
+        Map<String, Object> matchMap = new HashMap<String, Object>();
+        if(step instanceof PickleStepTestStep) {
+            PickleStepTestStep testStep = (PickleStepTestStep) step;
+            if (!testStep.getDefinitionArgument().isEmpty()) {
+                List<Map<String, Object>> argumentList = new ArrayList<Map<String, Object>>();
+                for (cucumber.api.Argument argument : testStep.getDefinitionArgument()) {
+                    Map<String, Object> argumentMap = new HashMap<String, Object>();
+                    if (argument.getValue() != null) {
+                        argumentMap.put("val", argument.getValue());
+                        argumentMap.put("offset", argument.getStart());
+                    }
+                    argumentList.add(argumentMap);
+                }
+                matchMap.put("arguments", argumentList);
+            }
+        }
+        if (!result.is(Result.Type.UNDEFINED)) {
+            matchMap.put("location", step.getCodeLocation());
+        }
+        return matchMap;
+    }
+
+    private Map<String, Object> createResultMap(Result result) {
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put("status", result.getStatus().lowerCaseName());
+        if (result.getErrorMessage() != null) {
+            resultMap.put("error_message", result.getErrorMessage());
+        }
+        if (result.getDuration() != null && result.getDuration() != 0) {
+            resultMap.put("duration", result.getDuration());
+        }
+        return resultMap;
+    }
+}
@@ -0,0 +1,151 @@
+package io.cloudbeat.cucumber;
+
+import cucumber.api.event.TestSourceRead;
+import gherkin.AstBuilder;
+import gherkin.Parser;
+import gherkin.ParserException;
+import gherkin.TokenMatcher;
+import gherkin.ast.Background;
+import gherkin.ast.Examples;
+import gherkin.ast.Feature;
+import gherkin.ast.GherkinDocument;
+import gherkin.ast.ScenarioDefinition;
+import gherkin.ast.ScenarioOutline;
+import gherkin.ast.Step;
+import gherkin.ast.TableRow;
+import gherkin.ast.Tag;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parsed feature files. Accessed from all runner threads, hence synchronized.
+ */
+final class TestSourcesModel {
+    private final Map<String, TestSourceRead> pathToReadEventMap = new HashMap<String, TestSourceRead>();
+    private final Map<String, FeatureIndex> pathToIndexMap = new HashMap<String, FeatureIndex>();
+    private final FeatureIndexCache cache;
+
+    TestSourcesModel() {
+        this(null);
+    }
+
+    /**
+     * @param cache cross-run cache of parsed features, null to always parse
+     */
+    TestSourcesModel(FeatureIndexCache cache) {
+        this.cache = cache;
+    }
+
+    static String convertToId(String name) {
+        return name.replaceAll("[\\s'_,!]", "-").toLowerCase();
+    }
+
+    synchronized void addTestSourceReadEvent(String path, TestSourceRead event) {
+        pathToReadEventMap.put(path, event);
+    }
+
+    synchronized FeatureIndex getFeatureIndex(String path) {
+        if (!pathToIndexMap.containsKey(path)) {
+            parseGherkinSource(path);
+        }
+        return pathToIndexMap.get(path);
+    }
+
+    synchronized FeatureIndex.Node getNode(String path, int line) {
+        FeatureIndex index = getFeatureIndex(path);
+        if (index != null) {
+            return index.getNode(line);
+        }
+        return null;
+    }
+
+    synchronized boolean hasBackground(String path, int line) {
+        FeatureIndex index = getFeatureIndex(path);
+        if (index != null) {
+            return index.hasBackground();
+        }
+        return false;
+    }
+
+    private void parseGherkinSource(String path) {
+        if (!pathToReadEventMap.containsKey(path)) {
+            return;
+        }
+        String source = pathToReadEventMap.get(path).source;
+        String hash = null;
+        if (cache != null) {
+            hash = FeatureIndexCache.hash(source);
+            FeatureIndex cached = cache.get(hash);
+            if (cached != null) {
+                pathToIndexMap.put(path, cached);
+                return;
+            }
+        }
+        Parser<GherkinDocument> parser = new Parser<GherkinDocument>(new AstBuilder());
+        TokenMatcher matcher = new TokenMatcher();
+        try {
+            GherkinDocument gherkinDocument = parser.parse(source, matcher);
+            FeatureIndex index = createIndex(gherkinDocument.getFeature());
+            pathToIndexMap.put(path, index);
+            if (cache != null)
+                cache.put(hash, index);
+        } catch (ParserException e) {
+            // Ignore exceptions
+        }
+    }
+
+    private FeatureIndex createIndex(Feature feature) {
+        FeatureIndex index = new FeatureIndex();
+        index.language = feature.getLanguage();
+        index.featureKeyword = feature.getKeyword();
+        index.featureName = feature.getName();
+        index.featureDescription = feature.getDescription();
+        index.featureLine = feature.getLocation().getLine();
+        for (Tag tag : feature.getTags())
+            index.featureTags.add(tag.getName());
+        String featureId = convertToId(feature.getName());
+        for (ScenarioDefinition child : feature.getChildren()) {
+            processScenarioDefinition(index, child, featureId);
+        }
+        return index;
+    }
+
+    private void processScenarioDefinition(FeatureIndex index, ScenarioDefinition child, String featureId) {
+        if (child instanceof Background) {
+            // only the first child can be a background
+            if (index.backgroundLine == 0) {
+                index.backgroundLine = child.getLocation().getLine();
+                index.backgroundKeyword = child.getKeyword();
+                index.backgroundName = child.getName();
+                index.backgroundDescription = child.getDescription();
+            }
+            for (Step step : child.getSteps()) {
+                index.nodes.put(step.getLocation().getLine(), new FeatureIndex.Node(FeatureIndex.KIND_BACKGROUND_STEP, step.getKeyword(), null, null));
+            }
+            return;
+        }
+        String scenarioId = featureId + ";" + convertToId(child.getName());
+        index.nodes.put(child.getLocation().getLine(), new FeatureIndex.Node(FeatureIndex.KIND_SCENARIO, child.getKeyword(), child.getDescription(), scenarioId));
+        for (Step step : child.getSteps()) {
+            index.nodes.put(step.getLocation().getLine(), new FeatureIndex.Node(FeatureIndex.KIND_STEP, step.getKeyword(), null, null));
+        }
+        if (child instanceof ScenarioOutline) {
+            processScenarioOutlineExamples(index, (ScenarioOutline) child, scenarioId);
+        }
+    }
+
+    private void processScenarioOutlineExamples(FeatureIndex index, ScenarioOutline scenarioOutline, String scenarioId) {
+        for (Examples examples : scenarioOutline.getExamples()) {
+            String examplesId = scenarioId + ";" + convertToId(examples.getName());
+            TableRow headerRow = examples.getTableHeader();
+            index.nodes.put(headerRow.getLocation().getLine(), new FeatureIndex.Node(FeatureIndex.KIND_EXAMPLES_HEADER,
+                    scenarioOutline.getKeyword(), scenarioOutline.getDescription(), examplesId + ";" + 1));
+            for (int i = 0; i < examples.getTableBody().size(); ++i) {
+                TableRow examplesRow = examples.getTableBody().get(i);
+                index.nodes.put(examplesRow.getLocation().getLine(), new FeatureIndex.Node(FeatureIndex.KIND_EXAMPLES_ROW,
+                        scenarioOutline.getKeyword(), scenarioOutline.getDescription(), examplesId + ";" + (i + 2)));
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.cloudbeat.cucumber;
+
+import cucumber.api.event.TestSourceRead;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FeatureIndexCacheTest {
+    private static final String URI = "features/calculator.feature";
+    private static final String SOURCE = "@math\n"
+            + "Feature: Calculator\n"
+            + "  Background:\n"
+            + "    Given a calculator\n"
+            + "\n"
+            + "  Scenario: Adding\n"
+            + "    When I add 1 and 2\n"
+            + "    Then the result is 3\n";
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    @Test
+    public void savedIndexesAreLoaded() throws IOException {
+        Path path = workDir.getRoot().toPath().resolve("cache").resolve("features.bin");
+        FeatureIndexCache cache = new FeatureIndexCache(path);
+        cache.load();
+        parse(cache, SOURCE);
+        assertTrue(cache.isModified());
+        cache.save();
+
+        FeatureIndexCache loaded = new FeatureIndexCache(path);
+        loaded.load();
+        assertFalse(loaded.isModified());
+        FeatureIndex index = loaded.get(FeatureIndexCache.hash(SOURCE));
+        assertNotNull(index);
+        assertEquals("Calculator", index.featureName);
+        assertEquals(2, index.featureLine);
+        assertEquals(Arrays.asList("@math"), index.featureTags);
+        assertEquals(3, index.backgroundLine);
+        assertTrue(index.getNode(4).isBackgroundStep());
+        assertEquals(FeatureIndex.KIND_SCENARIO, index.getNode(6).kind);
+        assertEquals("calculator;adding", index.getNode(6).id);
+        assertEquals("When ", index.getNode(7).keyword);
+        // parsing again hits the cache
+        parse(loaded, SOURCE);
+        assertFalse(loaded.isModified());
+    }
+
+    @Test
+    public void truncatedFileIsMiss() throws IOException {
+        Path path = createCacheFile();
+        byte[] content = Files.readAllBytes(path);
+        // within the header, within the table and within the entry
+        for (int length : new int[] { 0, 6, 20, content.length - 1 }) {
+            Files.write(path, Arrays.copyOf(content, length));
+            FeatureIndexCache cache = new FeatureIndexCache(path);
+            try {
+                cache.load();
+                fail("Cache of " + length + " bytes should not load");
+            } catch (IOException e) {
+                // expected, the plugin goes on with an empty cache
+            }
+            assertNull(cache.get(FeatureIndexCache.hash(SOURCE)));
+            // parsed again and written on save
+            assertEquals("Calculator", parse(cache, SOURCE).featureName);
+            assertTrue(cache.isModified());
+        }
+    }
+
+    @Test
+    public void corruptEntryIsMiss() throws IOException {
+        Path path = createCacheFile();
+        byte[] content = Files.readAllBytes(path);
+        // keep header and table of the single entry, overwrite the entry itself
+        for (int i = 12 + 28; i < content.length; i++)
+            content[i] = (byte)0xFF;
+        Files.write(path, content);
+
+        FeatureIndexCache cache = new FeatureIndexCache(path);
+        cache.load();
+        assertNull(cache.get(FeatureIndexCache.hash(SOURCE)));
+        parse(cache, SOURCE);
+        cache.save();
+
+        FeatureIndexCache repaired = new FeatureIndexCache(path);
+        repaired.load();
+        assertEquals("Calculator", repaired.get(FeatureIndexCache.hash(SOURCE)).featureName);
+    }
+
+    @Test
+    public void changedFeatureIsMiss() throws IOException {
+        Path path = createCacheFile();
+        String changed = SOURCE.replace("Scenario: Adding", "Scenario: Adding two numbers");
+        assertNotEquals(FeatureIndexCache.hash(SOURCE), FeatureIndexCache.hash(changed));
+
+        FeatureIndexCache cache = new FeatureIndexCache(path);
+        cache.load();
+        assertNull(cache.get(FeatureIndexCache.hash(changed)));
+        FeatureIndex index = parse(cache, changed);
+        assertEquals("calculator;adding-two-numbers", index.getNode(6).id);
+        assertTrue(cache.isModified());
+    }
+
+    private Path createCacheFile() throws IOException {
+        Path path = workDir.newFile().toPath();
+        Files.delete(path);
+        FeatureIndexCache cache = new FeatureIndexCache(path);
+        parse(cache, SOURCE);
+        cache.save();
+        return path;
+    }
+
+    private static FeatureIndex parse(FeatureIndexCache cache, String source) {
+        TestSourcesModel testSources = new TestSourcesModel(cache);
+        testSources.addTestSourceReadEvent(URI, new TestSourceRead(0L, URI, source));
+        return testSources.getFeatureIndex(URI);
+    }
+}
@@ -0,0 +1,324 @@
+package io.cloudbeat.cucumber;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cloudbeat.cucumber.harness.MockTestMonitor;
+import org.junit.After;
+import org.junit.AssumptionViolatedException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Drives {@link ResultReporter} the way the adapters do, with scenario maps built by hand, against {@link MockTestMonitor}.
+ */
+public class ResultReporterTest {
+    private static final String TEST_RESULTS_FILENAME = ".CB_TEST_RESULTS";
+    private static final String[] CASE_NAMES = { "First", "Second", "Third" };
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    private MockTestMonitor monitor;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Before
+    public void setUp() throws IOException {
+        monitor = new MockTestMonitor();
+        StringBuilder payload = new StringBuilder("{\"RunId\":\"run-1\",\"InstanceId\":\"instance-1\",")
+                .append("\"Capabilities\":{\"browserName\":\"chrome\"},\"Metadata\":{},\"EnvironmentVariables\":{},\"Cases\":[");
+        for (int i = 0; i < CASE_NAMES.length; i++) {
+            if (i > 0)
+                payload.append(',');
+            payload.append("{\"Id\":").append(i + 1).append(",\"Order\":").append(i + 1)
+                    .append(",\"Details\":{\"cucumberId\":\"test.feature:").append(getLine(i + 1)).append(" # ").append(CASE_NAMES[i]).append("\"}}");
+        }
+        payload.append("]}");
+        Path payloadPath = workDir.newFile("payload.json").toPath();
+        Files.write(payloadPath, payload.toString().getBytes(StandardCharsets.UTF_8));
+
+        System.setProperty("payloadpath", payloadPath.toString());
+        System.setProperty("testmonitorurl", monitor.getUrl());
+        System.setProperty("testmonitortoken", MockTestMonitor.TOKEN);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("payloadpath");
+        System.clearProperty("testmonitorurl");
+        System.clearProperty("testmonitortoken");
+        System.clearProperty("circuitbreakererrors");
+        System.clearProperty("heartbeatinterval");
+        System.clearProperty("reportformat");
+        System.clearProperty("detaillevel");
+        CucumberRunner.setSkipReason(null);
+        monitor.close();
+        new File(TEST_RESULTS_FILENAME).delete();
+    }
+
+    @Test
+    public void caseStartedBeforeBreakerOpenedIsSkippedByIt() throws IOException {
+        System.setProperty("circuitbreakererrors", "1");
+        ResultReporter reporter = new ResultReporter();
+
+        // the second case is already running when the first one opens the breaker
+        Map<String, Object> first = startCase(1);
+        Map<String, Object> second = startCase(2);
+        finishCase(reporter, 1, first, "failed");
+        skip();
+        finishCase(reporter, 2, second, "skipped");
+        reporter.finishReport(createFeatures(first, second));
+
+        JsonNode status = getCaseStatus(2);
+        assertEquals(0, status.get("iterationsFailed").intValue());
+        assertEquals("CIRCUIT_BREAKER", status.get("failures").get(0).get("type").textValue());
+        JsonNode caze = getResultCase(2);
+        assertEquals("Skipped", caze.get("status").textValue());
+        assertEquals("CIRCUIT_BREAKER", caze.get("failure").get("type").textValue());
+    }
+
+    @Test
+    public void caseSkippedByCucumberIsNotSkippedByBreaker() throws IOException {
+        System.setProperty("circuitbreakererrors", "1");
+        ResultReporter reporter = new ResultReporter();
+
+        Map<String, Object> first = startCase(1);
+        finishCase(reporter, 1, first, "failed");
+        // e.g. an undefined step, started after the breaker opened but never skipped by it
+        Map<String, Object> second = startCase(2);
+        finishCase(reporter, 2, second, "skipped");
+        reporter.finishReport(createFeatures(first, second));
+
+        JsonNode status = getCaseStatus(2);
+        assertEquals(1, status.get("iterationsFailed").intValue());
+        assertTrue(status.get("failures").isNull());
+        assertEquals("Failed", getResultCase(2).get("status").textValue());
+    }
+
+    @Test
+    public void heartbeatsNeverFollowFinalStatus() throws IOException, InterruptedException {
+        System.setProperty("heartbeatinterval", "0.01");
+        ResultReporter reporter = new ResultReporter();
+
+        Map<String, Object> first = startCase(1);
+        reporter.caseStarted("features/" + first.get("cucumberId"), CASE_NAMES[0], 1);
+        reporter.stepStarted(false);
+        waitForHeartbeat(1);
+        finishCase(reporter, 1, first, "passed");
+        // still running when the run ends
+        Map<String, Object> second = startCase(2);
+        reporter.caseStarted("features/" + second.get("cucumberId"), CASE_NAMES[1], 1);
+        waitForHeartbeat(2);
+        reporter.finishReport(createFeatures(first));
+        int requestCount = monitor.getRequests().size();
+        Thread.sleep(100);
+
+        assertEquals(requestCount, monitor.getRequests().size());
+        List<JsonNode> updates = getCaseStatuses(1);
+        JsonNode finalStatus = updates.get(updates.size() - 1);
+        assertTrue(finalStatus.get("currentStep").isNull());
+        assertEquals(1, finalStatus.get("iterationsPassed").intValue());
+        for (JsonNode update : updates.subList(0, updates.size() - 1)) {
+            assertEquals(1, update.get("currentStep").intValue());
+            // not reported as finished yet, so it has no order
+            assertEquals(0, update.get("order").intValue());
+        }
+    }
+
+    @Test
+    public void binaryReportsAreSent() throws IOException {
+        System.setProperty("reportformat", "cbor");
+        ResultReporter reporter = new ResultReporter();
+
+        Map<String, Object> first = startCase(1);
+        finishCase(reporter, 1, first, "passed");
+        reporter.finishReport(createFeatures(first));
+
+        List<MockTestMonitor.RecordedRequest> requests = monitor.getRequests("/status");
+        assertEquals(1, requests.size());
+        assertEquals("application/cbor", requests.get(0).contentType);
+        JsonNode caze = ResultEncoding.CBOR.createMapper().readTree(requests.get(0).body).get("case");
+        assertEquals(1, caze.get("id").intValue());
+        assertEquals(1, caze.get("iterationsPassed").intValue());
+    }
+
+    @Test
+    public void binaryReportsFallBackToJson() throws IOException {
+        System.setProperty("reportformat", "smile");
+        monitor.setJsonOnly(true);
+        ResultReporter reporter = new ResultReporter();
+
+        Map<String, Object> first = startCase(1);
+        finishCase(reporter, 1, first, "passed");
+        Map<String, Object> second = startCase(2);
+        finishCase(reporter, 2, second, "failed");
+        reporter.finishReport(createFeatures(first, second));
+
+        // the rejected report is sent again as JSON, and so are all later ones
+        List<MockTestMonitor.RecordedRequest> requests = monitor.getRequests("/status");
+        requests.sort(Comparator.comparingLong(request -> request.receivedNanos));
+        assertEquals(3, requests.size());
+        assertEquals("application/x-jackson-smile", requests.get(0).contentType);
+        assertEquals(415, requests.get(0).responseCode);
+        for (MockTestMonitor.RecordedRequest request : requests.subList(1, 3)) {
+            assertTrue(request.contentType.startsWith("application/json"));
+            assertEquals(200, request.responseCode);
+        }
+        assertEquals(1, getCaseStatus(1).get("iterationsPassed").intValue());
+        assertEquals(1, getCaseStatus(2).get("iterationsFailed").intValue());
+    }
+
+    @Test
+    public void failuresOnlyKeepsStepsOfFailedCases() throws IOException {
+        System.setProperty("detaillevel", "failures-only");
+        ResultReporter reporter = new ResultReporter();
+
+        Map<String, Object> first = startCase(1);
+        finishCase(reporter, 1, first, "passed");
+        assertTrue(reporter.collapseCase(first));
+        Map<String, Object> second = startCase(2);
+        finishCase(reporter, 2, second, "failed");
+        assertFalse(reporter.collapseCase(second));
+        reporter.finishReport(createFeatures(first, second));
+
+        JsonNode passed = getResultCase(1);
+        assertEquals("Passed", passed.get("status").textValue());
+        assertEquals(1, passed.get("duration").intValue());
+        assertTrue(passed.get("steps").isNull());
+        JsonNode failed = getResultCase(2);
+        assertEquals("Failed", failed.get("status").textValue());
+        assertEquals(1, failed.get("steps").size());
+        assertEquals("java.lang.AssertionError: expected", failed.get("steps").get(0).get("failure").get("message").textValue());
+    }
+
+    @Test
+    public void summaryKeepsFailuresOfFailedCases() throws IOException {
+        System.setProperty("detaillevel", "summary");
+        ResultReporter reporter = new ResultReporter();
+
+        Map<String, Object> first = startCase(1);
+        finishCase(reporter, 1, first, "passed");
+        assertTrue(reporter.collapseCase(first));
+        Map<String, Object> second = startCase(2);
+        finishCase(reporter, 2, second, "failed");
+        assertTrue(reporter.collapseCase(second));
+        reporter.finishReport(createFeatures(first, second));
+
+        JsonNode passed = getResultCase(1);
+        assertEquals("Passed", passed.get("status").textValue());
+        assertTrue(passed.get("steps").isNull());
+        assertTrue(passed.get("failure").isNull());
+        // no steps either, but the failure of the first failed step
+        JsonNode failed = getResultCase(2);
+        assertEquals("Failed", failed.get("status").textValue());
+        assertTrue(failed.get("steps").isNull());
+        assertEquals("java.lang.AssertionError: expected", failed.get("failure").get("message").textValue());
+        assertEquals("Failed", mapper.readTree(new File(TEST_RESULTS_FILENAME)).get("status").textValue());
+    }
+
+    private static int getLine(int caseId) {
+        return caseId * 5;
+    }
+
+    private static Map<String, Object> startCase(int caseId) {
+        Map<String, Object> scenario = new HashMap<>();
+        scenario.put("cucumberId", "test.feature:" + getLine(caseId) + " # " + CASE_NAMES[caseId - 1]);
+        scenario.put("name", CASE_NAMES[caseId - 1]);
+        scenario.put("start_timestamp", System.nanoTime());
+        return scenario;
+    }
+
+    /**
+     * Finishes a case of one step with the given Cucumber status, on the thread which ran the case.
+     */
+    private static void finishCase(ResultReporter reporter, int caseId, Map<String, Object> scenario, String stepStatus) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", stepStatus);
+        result.put("duration", 1000000L);
+        if (stepStatus.equals("failed"))
+            result.put("error_message", "java.lang.AssertionError: expected");
+        Map<String, Object> step = new HashMap<>();
+        step.put("name", "a step");
+        step.put("result", result);
+        scenario.put("steps", new ArrayList<>(Arrays.asList(step)));
+
+        Map<String, Object> caseAttributes = new HashMap<>();
+        reporter.caseFinished(caseAttributes);
+        scenario.putAll(caseAttributes);
+        scenario.put("end_timestamp", System.nanoTime());
+        reporter.reportCaseStatus("features/" + scenario.get("cucumberId"), "features/test.feature:" + getLine(caseId), scenario);
+    }
+
+    // what a before hook calling CucumberRunner.skipIfNeeded results in
+    private static void skip() {
+        try {
+            CucumberRunner.skipIfNeeded();
+            fail("Case should have been skipped");
+        } catch (AssumptionViolatedException e) {
+            // expected
+        }
+    }
+
+    @SafeVarargs
+    private static List<Map<String, Object>> createFeatures(Map<String, Object>... scenarios) {
+        Map<String, Object> feature = new HashMap<>();
+        feature.put("elements", new ArrayList<>(Arrays.asList(scenarios)));
+        List<Map<String, Object>> features = new ArrayList<>();
+        features.add(feature);
+        return features;
+    }
+
+    private void waitForHeartbeat(long caseId) throws IOException, InterruptedException {
+        for (int i = 0; i < 500 && getCaseStatuses(caseId).isEmpty(); i++)
+            Thread.sleep(10);
+        assertTrue(getCaseStatuses(caseId).size() > 0);
+    }
+
+    private JsonNode getCaseStatus(long caseId) throws IOException {
+        List<JsonNode> statuses = getCaseStatuses(caseId);
+        if (statuses.isEmpty())
+            throw new AssertionError("No status of case " + caseId);
+        return statuses.get(statuses.size() - 1);
+    }
+
+    // accepted ones, in the order the monitor received them
+    private List<JsonNode> getCaseStatuses(long caseId) throws IOException {
+        List<MockTestMonitor.RecordedRequest> requests = monitor.getRequests("/status");
+        requests.sort(Comparator.comparingLong(request -> request.receivedNanos));
+        List<JsonNode> statuses = new ArrayList<>();
+        for (MockTestMonitor.RecordedRequest request : requests) {
+            if (request.responseCode != 200)
+                continue;
+            JsonNode caze = mapper.readTree(request.body).get("case");
+            if (caze != null && caze.get("id").longValue() == caseId)
+                statuses.add(caze);
+        }
+        return statuses;
+    }
+
+    private JsonNode getResultCase(long caseId) throws IOException {
+        for (JsonNode caze : mapper.readTree(new File(TEST_RESULTS_FILENAME)).get("suites").get(0).get("cases")) {
+            if (caze.get("id").longValue() == caseId)
+                return caze;
+        }
+        throw new AssertionError("No result of case " + caseId);
+    }
+}
@@ -0,0 +1,39 @@
+package io.cloudbeat.cucumber.golden;
+
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Steps of the golden features, the Cucumber 7 module has the same ones.
+ */
+public class CalculatorSteps {
+    private int result;
+
+    @Given("a calculator")
+    public void aCalculator() {
+        result = 0;
+    }
+
+    @When("I add {int} and {int}")
+    public void add(int a, int b) {
+        result = a + b;
+    }
+
+    @When("I multiply {int} and {int}")
+    public void multiply(int a, int b) {
+        result = a * b;
+    }
+
+    @When("I divide {int} by {int}")
+    public void divide(int a, int b) {
+        result = a / b;
+    }
+
+    @Then("the result is {int}")
+    public void theResultIs(int expected) {
+        assertEquals(expected, result);
+    }
+}
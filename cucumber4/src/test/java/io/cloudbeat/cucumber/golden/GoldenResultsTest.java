@@ -0,0 +1,86 @@
+package io.cloudbeat.cucumber.golden;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import cucumber.api.cli.Main;
+import io.cloudbeat.cucumber.harness.MockTestMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the golden features through Cucumber 4 and compares the results file with the one both adapters must produce.
+ * The Cucumber 7 module has the same test against the same expected results.
+ */
+public class GoldenResultsTest {
+    private static final String TEST_RESULTS_FILENAME = ".CB_TEST_RESULTS";
+
+    private MockTestMonitor monitor;
+
+    @Before
+    public void setUp() throws IOException, URISyntaxException {
+        monitor = new MockTestMonitor();
+        System.setProperty("payloadpath", Paths.get(getClass().getResource("/golden/payload.json").toURI()).toString());
+        System.setProperty("testmonitorurl", monitor.getUrl());
+        System.setProperty("testmonitortoken", MockTestMonitor.TOKEN);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("payloadpath");
+        System.clearProperty("testmonitorurl");
+        System.clearProperty("testmonitortoken");
+        monitor.close();
+        new File(TEST_RESULTS_FILENAME).delete();
+    }
+
+    @Test
+    public void producesGoldenResults() throws IOException {
+        String[] argv = {
+                "--glue", "io.cloudbeat.cucumber.golden",
+                "--plugin", "io.cloudbeat.cucumber.Plugin:",
+                "--threads", "2",
+                "classpath:golden/features"
+        };
+        // two scenarios fail on purpose
+        assertEquals(1, Main.run(argv, Thread.currentThread().getContextClassLoader()));
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode expected = mapper.readTree(getClass().getResource("/golden/expected-results.json"));
+        JsonNode actual = normalize(mapper.readTree(new File(TEST_RESULTS_FILENAME)));
+        assertEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(expected),
+                mapper.writerWithDefaultPrettyPrinter().writeValueAsString(actual));
+        assertEquals(6, monitor.getRequests("/status").size());
+    }
+
+    /**
+     * Drops timings and keeps only the first line of failure messages, the stack traces below it come from the runtime.
+     */
+    private static JsonNode normalize(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode)node;
+            object.remove("startTime");
+            object.remove("endTime");
+            object.remove("duration");
+            JsonNode message = object.get("message");
+            if (message != null && message.isTextual())
+                object.put("message", message.textValue().split("\n", 2)[0]);
+            for (Iterator<Map.Entry<String, JsonNode>> it = object.fields(); it.hasNext(); )
+                normalize(it.next().getValue());
+        } else if (node.isArray()) {
+            for (JsonNode element : node)
+                normalize(element);
+        }
+        return node;
+    }
+}
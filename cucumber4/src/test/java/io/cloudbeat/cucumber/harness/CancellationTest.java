@@ -0,0 +1,87 @@
+package io.cloudbeat.cucumber.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cloudbeat.cucumber.CucumberRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cancellation through the test monitor's reply, with a small synthetic run. Unlike {@link ReportingLoadTest} part of the default run.
+ */
+public class CancellationTest {
+    private static final String TEST_RESULTS_FILENAME = ".CB_TEST_RESULTS";
+    private static final int SCENARIOS = 20;
+    private static final int CANCEL_AFTER = 5;
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    private MockTestMonitor monitor;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Before
+    public void setUp() throws IOException {
+        monitor = new MockTestMonitor();
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("payloadpath");
+        System.clearProperty("testmonitorurl");
+        System.clearProperty("testmonitortoken");
+        monitor.close();
+        new File(TEST_RESULTS_FILENAME).delete();
+    }
+
+    @Test
+    public void cancelingStatusCancelsRun() throws IOException {
+        assertRunCanceled(4);
+    }
+
+    @Test
+    public void canceledStatusCancelsRun() throws IOException {
+        assertRunCanceled(5);
+    }
+
+    @Test
+    public void runningStatusDoesNotCancelRun() throws IOException {
+        monitor.setCancelAfter(CANCEL_AFTER, 2);
+        new SyntheticRun(SCENARIOS).execute(monitor.getUrl(), workDir.getRoot().toPath());
+
+        assertFalse(CucumberRunner.isCanceled());
+        assertEquals(SCENARIOS, monitor.getRequests("/status").size());
+        assertEquals("Passed", mapper.readTree(new File(TEST_RESULTS_FILENAME)).get("status").textValue());
+    }
+
+    private void assertRunCanceled(int runStatus) throws IOException {
+        monitor.setCancelAfter(CANCEL_AFTER, runStatus);
+        new SyntheticRun(SCENARIOS).execute(monitor.getUrl(), workDir.getRoot().toPath());
+
+        assertTrue(CucumberRunner.isCanceled());
+        // scenarios up to the one whose status reply canceled the run, the later ones were skipped and not reported
+        List<MockTestMonitor.RecordedRequest> statusRequests = monitor.getRequests("/status");
+        assertEquals(CANCEL_AFTER + 1, statusRequests.size());
+        for (int i = 0; i < CANCEL_AFTER; i++)
+            assertEquals(2, mapper.readTree(statusRequests.get(i).body).get("status").intValue());
+        assertEquals(5, mapper.readTree(statusRequests.get(CANCEL_AFTER).body).get("status").intValue());
+
+        JsonNode rootNode = mapper.readTree(new File(TEST_RESULTS_FILENAME));
+        assertEquals("Canceled", rootNode.get("status").textValue());
+        JsonNode cases = rootNode.get("suites").get(0).get("cases");
+        assertEquals(CANCEL_AFTER, cases.size());
+        for (JsonNode caze : cases)
+            assertEquals("Passed", caze.get("status").textValue());
+    }
+}
@@ -0,0 +1,235 @@
+package io.cloudbeat.cucumber.harness;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the CloudBeat test monitor.
+ * Accepts any POST, records it and answers according to the configured latency, error rate, throughput limit, accepted content type and run status.
+ */
+public class MockTestMonitor implements AutoCloseable {
+    public static final String TOKEN = "mock-token";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Queue<RecordedRequest> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger received = new AtomicInteger();
+
+    private volatile long latencyMillis;
+    private volatile double errorRate;
+    private volatile int maxRequestsPerSecond;
+    private volatile int cancelAfter;
+    private volatile int cancelStatus = 5;
+    private volatile boolean isJsonOnly;
+
+    private final Object throttleLock = new Object();
+    private long throttleWindowStart;
+    private int throttleWindowCount;
+
+    public static class RecordedRequest {
+        public final String path;
+        public final String authorization;
+        public final String contentType;
+        public final byte[] body;
+        public final long receivedNanos;
+        public final int responseCode;
+
+        RecordedRequest(String path, String authorization, String contentType, byte[] body, long receivedNanos, int responseCode) {
+            this.path = path;
+            this.authorization = authorization;
+            this.contentType = contentType;
+            this.body = body;
+            this.receivedNanos = receivedNanos;
+            this.responseCode = responseCode;
+        }
+
+        public String getBodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    public MockTestMonitor() throws IOException {
+        this(16);
+    }
+
+    public MockTestMonitor(int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Delay added before every response.
+     */
+    public MockTestMonitor setLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * Fraction (0..1) of requests answered with HTTP 500.
+     */
+    public MockTestMonitor setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Requests above this rate are answered with HTTP 429. 0 disables the limit.
+     */
+    public MockTestMonitor setMaxRequestsPerSecond(int maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        return this;
+    }
+
+    /**
+     * Requests which aren't JSON are answered with HTTP 415, like a test monitor without support for binary reports.
+     */
+    public MockTestMonitor setJsonOnly(boolean isJsonOnly) {
+        this.isJsonOnly = isJsonOnly;
+        return this;
+    }
+
+    /**
+     * Replies to the n-th and all later requests carry a canceled run status. 0 never cancels.
+     */
+    public MockTestMonitor setCancelAfter(int requests) {
+        return setCancelAfter(requests, 5);
+    }
+
+    /**
+     * Replies to the n-th and all later requests carry the given run status, 4 (canceling) or 5 (canceled). 0 never cancels.
+     */
+    public MockTestMonitor setCancelAfter(int requests, int status) {
+        this.cancelStatus = status;
+        this.cancelAfter = requests;
+        return this;
+    }
+
+    public List<RecordedRequest> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    public List<RecordedRequest> getRequests(String path) {
+        List<RecordedRequest> matching = new ArrayList<>();
+        for (RecordedRequest request : requests) {
+            if (request.path.equals(path))
+                matching.add(request);
+        }
+        return matching;
+    }
+
+    public int getRejectedCount() {
+        return rejected.get();
+    }
+
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    public void reset() {
+        requests.clear();
+        received.set(0);
+        rejected.set(0);
+        failed.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long receivedNanos = System.nanoTime();
+        byte[] body = readFully(exchange.getRequestBody());
+        int requestNumber = received.incrementAndGet();
+
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        int responseCode = 200;
+        if (isJsonOnly && (contentType == null || !contentType.startsWith("application/json"))) {
+            responseCode = 415;
+        } else if (isThrottled(receivedNanos)) {
+            responseCode = 429;
+            rejected.incrementAndGet();
+        } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            responseCode = 500;
+            failed.incrementAndGet();
+        }
+
+        requests.add(new RecordedRequest(
+                exchange.getRequestURI().getPath(),
+                exchange.getRequestHeaders().getFirst("Authorization"),
+                contentType,
+                body,
+                receivedNanos,
+                responseCode));
+
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        String reply = "{}";
+        if (responseCode != 200)
+            reply = "{\"error\":" + responseCode + "}";
+        else if (cancelAfter > 0 && requestNumber >= cancelAfter)
+            reply = "{\"status\":" + cancelStatus + "}";
+        byte[] response = reply.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(responseCode, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    private boolean isThrottled(long nowNanos) {
+        int limit = maxRequestsPerSecond;
+        if (limit <= 0)
+            return false;
+        synchronized (throttleLock) {
+            if (nowNanos - throttleWindowStart >= TimeUnit.SECONDS.toNanos(1)) {
+                throttleWindowStart = nowNanos;
+                throttleWindowCount = 0;
+            }
+            return ++throttleWindowCount > limit;
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,186 @@
+package io.cloudbeat.cucumber.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Load tests of the reporting path against {@link MockTestMonitor}.
+ * Disabled by default, run with {@code mvn test -Dloadtest=true [-Dloadtest.scenarios=10000]}.
+ */
+public class ReportingLoadTest {
+    private static final String TEST_RESULTS_FILENAME = ".CB_TEST_RESULTS";
+    private static final int SCENARIOS = Integer.getInteger("loadtest.scenarios", 10000);
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    private MockTestMonitor monitor;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        Assume.assumeTrue("Load tests are disabled, use -Dloadtest=true to enable them", Boolean.getBoolean("loadtest"));
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        monitor = new MockTestMonitor();
+    }
+
+    @After
+    public void tearDown() {
+        monitor.close();
+        new File(TEST_RESULTS_FILENAME).delete();
+    }
+
+    @Test
+    public void reportsEveryScenarioToHealthyMonitor() throws IOException {
+        SyntheticRun.Stats stats = new SyntheticRun(SCENARIOS).setFailureRate(0.05).execute(monitor.getUrl(), workDir.getRoot().toPath());
+        System.out.println("[healthy] " + stats);
+
+        List<MockTestMonitor.RecordedRequest> statusRequests = monitor.getRequests("/status");
+        assertEquals(SCENARIOS, statusRequests.size());
+        for (MockTestMonitor.RecordedRequest request : statusRequests)
+            assertEquals("Bearer " + MockTestMonitor.TOKEN, request.authorization);
+        assertEquals(SCENARIOS, countResultCases());
+    }
+
+    @Test
+    public void slowMonitorAddsLatencyToEveryScenario() throws IOException {
+        int scenarios = Math.max(1, SCENARIOS / 20);
+        monitor.setLatency(20);
+        SyntheticRun.Stats stats = new SyntheticRun(scenarios).execute(monitor.getUrl(), workDir.getRoot().toPath());
+        System.out.println("[latency 20ms] " + stats);
+
+        assertEquals(scenarios, monitor.getRequests("/status").size());
+        // status is reported synchronously, so the monitor latency ends up in every test case
+        assertTrue(stats.getAddedLatencyMillis(50) >= 20);
+        assertEquals(scenarios, countResultCases());
+    }
+
+    @Test
+    public void eventBufferKeepsMonitorLatencyOffScenarios() throws IOException {
+        int scenarios = Math.max(1, SCENARIOS / 20);
+        monitor.setLatency(20);
+        System.setProperty("eventbuffersize", "65536");
+        SyntheticRun.Stats stats;
+        try {
+            stats = new SyntheticRun(scenarios).execute(monitor.getUrl(), workDir.getRoot().toPath());
+            System.out.println("[latency 20ms, event buffer] " + stats);
+        } finally {
+            System.clearProperty("eventbuffersize");
+        }
+
+        // status is reported by the consumer thread, the end of the run waits for all of them
+        assertEquals(scenarios, monitor.getRequests("/status").size());
+        assertTrue(stats.getAddedLatencyMillis(50) < 20);
+        assertEquals(scenarios, countResultCases());
+    }
+
+    @Test
+    public void fullEventBufferDoesNotLoseResults() throws IOException {
+        int scenarios = Math.max(1, SCENARIOS / 20);
+        monitor.setLatency(2);
+        // a few scenarios worth of events, so that runner threads have to wait for the consumer
+        System.setProperty("eventbuffersize", "16");
+        try {
+            SyntheticRun.Stats stats = new SyntheticRun(scenarios).setFailureRate(0.05).execute(monitor.getUrl(), workDir.getRoot().toPath());
+            System.out.println("[latency 2ms, event buffer of 16] " + stats);
+        } finally {
+            System.clearProperty("eventbuffersize");
+        }
+
+        assertEquals(scenarios, monitor.getRequests("/status").size());
+        assertEquals(scenarios, countResultCases());
+    }
+
+    @Test
+    public void failingMonitorDoesNotLoseResults() throws IOException {
+        int scenarios = Math.max(1, SCENARIOS / 10);
+        monitor.setErrorRate(0.2);
+        SyntheticRun.Stats stats = new SyntheticRun(scenarios).execute(monitor.getUrl(), workDir.getRoot().toPath());
+        System.out.println("[error rate 20%] " + stats + ", failed " + monitor.getFailedCount());
+
+        assertEquals(scenarios, monitor.getRequests("/status").size());
+        assertEquals(scenarios, countResultCases());
+    }
+
+    @Test
+    public void throttledMonitorDoesNotLoseResults() throws IOException {
+        int scenarios = Math.max(1, SCENARIOS / 10);
+        // well below the rate of a single runner thread, so that the limit is actually hit
+        monitor.setMaxRequestsPerSecond(20);
+        SyntheticRun.Stats stats = new SyntheticRun(scenarios).execute(monitor.getUrl(), workDir.getRoot().toPath());
+        System.out.println("[throttled 20 req/s] " + stats + ", rejected " + monitor.getRejectedCount());
+
+        // rejected statuses are not retried, only the results file has to be complete
+        assertEquals(scenarios, monitor.getRequests("/status").size());
+        assertTrue(monitor.getRejectedCount() > 0);
+        assertEquals(scenarios, countResultCases());
+    }
+
+    @Test
+    public void canceledRunSkipsRemainingScenarios() throws IOException {
+        int scenarios = Math.max(20, SCENARIOS / 10);
+        int cancelAfter = scenarios / 2;
+        monitor.setCancelAfter(cancelAfter);
+        SyntheticRun.Stats stats = new SyntheticRun(scenarios).execute(monitor.getUrl(), workDir.getRoot().toPath());
+        System.out.println("[canceled after " + cancelAfter + "] " + stats);
+
+        // scenarios up to the one whose status reply canceled the run, then the canceled run status
+        List<MockTestMonitor.RecordedRequest> statusRequests = monitor.getRequests("/status");
+        assertEquals(cancelAfter + 1, statusRequests.size());
+        JsonNode lastStatus = new ObjectMapper().readTree(statusRequests.get(cancelAfter).body);
+        assertEquals(5, lastStatus.get("status").intValue());
+        assertEquals(cancelAfter, countResultCases());
+        assertEquals("Canceled", new ObjectMapper().readTree(new File(TEST_RESULTS_FILENAME)).get("status").textValue());
+    }
+
+    @Test
+    public void circuitBreakerSkipsRemainingScenarios() throws IOException {
+        int scenarios = Math.max(20, SCENARIOS / 10);
+        System.setProperty("circuitbreakererrors", "5");
+        try {
+            SyntheticRun.Stats stats = new SyntheticRun(scenarios).setFailureRate(1).execute(monitor.getUrl(), workDir.getRoot().toPath());
+            System.out.println("[circuit breaker] " + stats);
+        } finally {
+            System.clearProperty("circuitbreakererrors");
+        }
+
+        // every scenario is still in the results, the ones after the fifth identical failure as skipped
+        JsonNode rootNode = new ObjectMapper().readTree(new File(TEST_RESULTS_FILENAME));
+        JsonNode cases = rootNode.get("suites").get(0).get("cases");
+        assertEquals(scenarios, cases.size());
+        for (int i = 0; i < scenarios; i++) {
+            JsonNode caze = cases.get(i);
+            assertEquals(i < 5 ? "Failed" : "Skipped", caze.get("status").textValue());
+            if (i >= 5) {
+                assertEquals("CIRCUIT_BREAKER", caze.get("failure").get("type").textValue());
+                assertTrue(caze.get("failure").get("message").textValue().contains("java.lang.AssertionError: synthetic failure"));
+            }
+        }
+        assertEquals("Failed", rootNode.get("status").textValue());
+        assertEquals(scenarios, monitor.getRequests("/status").size());
+    }
+
+    private int countResultCases() throws IOException {
+        JsonNode rootNode = new ObjectMapper().readTree(new File(TEST_RESULTS_FILENAME));
+        int count = 0;
+        for (JsonNode suite : rootNode.get("suites"))
+            count += suite.get("cases").size();
+        return count;
+    }
+}
@@ -0,0 +1,337 @@
+package io.cloudbeat.cucumber.harness;
+
+import cucumber.api.Argument;
+import cucumber.api.PickleStepTestStep;
+import cucumber.api.Result;
+import cucumber.api.TestCase;
+import cucumber.api.TestStep;
+import cucumber.api.event.Event;
+import cucumber.api.event.EventHandler;
+import cucumber.api.event.EventPublisher;
+import cucumber.api.event.TestCaseFinished;
+import cucumber.api.event.TestCaseStarted;
+import cucumber.api.event.TestRunFinished;
+import cucumber.api.event.TestRunStarted;
+import cucumber.api.event.TestSourceRead;
+import cucumber.api.event.TestStepFinished;
+import cucumber.api.event.TestStepStarted;
+import gherkin.pickles.PickleLocation;
+import gherkin.pickles.PickleStep;
+import gherkin.pickles.PickleTag;
+import io.cloudbeat.cucumber.CucumberRunner;
+import io.cloudbeat.cucumber.Plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives the plugin with generated features and scenarios, the same way Cucumber's event bus would, and measures the time spent in the plugin.
+ */
+public class SyntheticRun {
+    private static final String[] STEP_KEYWORDS = { "Given ", "When ", "Then ", "And " };
+
+    private final int scenarioCount;
+    private int scenariosPerFeature = 100;
+    private int stepsPerScenario = 3;
+    private double failureRate;
+
+    public static class Stats {
+        public final int scenarios;
+        public final long totalNanos;
+        // time spent by the plugin in TestCaseFinished, that's where the status is reported unless the event buffer is enabled
+        public final long[] caseFinishedNanos;
+
+        Stats(int scenarios, long totalNanos, long[] caseFinishedNanos) {
+            this.scenarios = scenarios;
+            this.totalNanos = totalNanos;
+            this.caseFinishedNanos = caseFinishedNanos;
+            Arrays.sort(this.caseFinishedNanos);
+        }
+
+        public double getScenariosPerSecond() {
+            return scenarios / (totalNanos / 1e9);
+        }
+
+        public double getAddedLatencyMillis(double percentile) {
+            if (caseFinishedNanos.length == 0)
+                return 0;
+            int idx = (int)Math.min(caseFinishedNanos.length - 1, Math.ceil(percentile / 100 * caseFinishedNanos.length) - 1);
+            return caseFinishedNanos[Math.max(0, idx)] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d scenarios in %.2fs, %.1f scenarios/s, added latency p50=%.2fms p99=%.2fms max=%.2fms",
+                    scenarios, totalNanos / 1e9, getScenariosPerSecond(),
+                    getAddedLatencyMillis(50), getAddedLatencyMillis(99), getAddedLatencyMillis(100));
+        }
+    }
+
+    public SyntheticRun(int scenarioCount) {
+        this.scenarioCount = scenarioCount;
+    }
+
+    public SyntheticRun setScenariosPerFeature(int scenariosPerFeature) {
+        this.scenariosPerFeature = scenariosPerFeature;
+        return this;
+    }
+
+    public SyntheticRun setStepsPerScenario(int stepsPerScenario) {
+        this.stepsPerScenario = stepsPerScenario;
+        return this;
+    }
+
+    /**
+     * Fraction (0..1) of scenarios whose last step fails.
+     */
+    public SyntheticRun setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    /**
+     * Writes the payload to the work directory, points the plugin to the monitor and runs all scenarios through it.
+     */
+    public Stats execute(String monitorUrl, Path workDir) throws IOException {
+        Path payloadPath = workDir.resolve("payload.json");
+        Files.write(payloadPath, createPayload().getBytes(StandardCharsets.UTF_8));
+
+        System.setProperty("payloadpath", payloadPath.toString());
+        System.setProperty("testmonitorurl", monitorUrl);
+        System.setProperty("testmonitortoken", MockTestMonitor.TOKEN);
+        Plugin plugin = new Plugin("");
+        SyntheticEventBus bus = new SyntheticEventBus();
+        plugin.setEventPublisher(bus);
+
+        long[] caseFinishedNanos = new long[scenarioCount];
+        long start = System.nanoTime();
+        bus.send(new TestRunStarted(System.nanoTime()));
+
+        int caseIdx = 0;
+        for (int featureIdx = 0; caseIdx < scenarioCount; featureIdx++) {
+            String uri = getFeatureUri(featureIdx);
+            int scenarios = Math.min(scenariosPerFeature, scenarioCount - caseIdx);
+            bus.send(new TestSourceRead(System.nanoTime(), uri, createFeatureSource(featureIdx, scenarios)));
+
+            for (int scenarioIdx = 0; scenarioIdx < scenarios; scenarioIdx++, caseIdx++) {
+                SyntheticTestCase testCase = new SyntheticTestCase(uri, featureIdx, scenarioIdx, getScenarioLine(scenarioIdx), stepsPerScenario);
+                boolean isFailed = failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate;
+                bus.send(new TestCaseStarted(System.nanoTime(), testCase));
+                // what a before hook calling CucumberRunner.skipIfNeeded results in
+                boolean isSkipped = false;
+                try {
+                    CucumberRunner.skipIfNeeded();
+                } catch (RuntimeException e) {
+                    isSkipped = true;
+                }
+                Result caseResult = null;
+                for (int stepIdx = 0; stepIdx < testCase.steps.size(); stepIdx++) {
+                    TestStep step = testCase.steps.get(stepIdx);
+                    bus.send(new TestStepStarted(System.nanoTime(), testCase, step));
+                    if (isSkipped)
+                        caseResult = new Result(Result.Type.SKIPPED, 0L, null);
+                    else if (isFailed && stepIdx == testCase.steps.size() - 1)
+                        caseResult = new Result(Result.Type.FAILED, 1000000L, new AssertionError("synthetic failure"));
+                    else
+                        caseResult = new Result(Result.Type.PASSED, 1000000L, null);
+                    bus.send(new TestStepFinished(System.nanoTime(), testCase, step, caseResult));
+                }
+
+                long finishStart = System.nanoTime();
+                bus.send(new TestCaseFinished(finishStart, testCase, caseResult));
+                caseFinishedNanos[caseIdx] = System.nanoTime() - finishStart;
+            }
+        }
+
+        bus.send(new TestRunFinished(System.nanoTime()));
+        return new Stats(scenarioCount, System.nanoTime() - start, caseFinishedNanos);
+    }
+
+    private String createPayload() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"RunId\":\"run-1\",\"InstanceId\":\"instance-1\",")
+                .append("\"Capabilities\":{\"browserName\":\"chrome\"},\"Metadata\":{},\"EnvironmentVariables\":{},\"Cases\":[");
+        int caseIdx = 0;
+        for (int featureIdx = 0; caseIdx < scenarioCount; featureIdx++) {
+            int scenarios = Math.min(scenariosPerFeature, scenarioCount - caseIdx);
+            for (int scenarioIdx = 0; scenarioIdx < scenarios; scenarioIdx++, caseIdx++) {
+                if (caseIdx > 0)
+                    sb.append(',');
+                String cucumberId = getCucumberId(featureIdx, scenarioIdx, getScenarioLine(scenarioIdx));
+                sb.append("{\"Id\":").append(caseIdx + 1)
+                        .append(",\"Order\":").append(caseIdx + 1)
+                        .append(",\"Details\":{\"cucumberId\":\"").append(cucumberId).append("\"}}");
+            }
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private String createFeatureSource(int featureIdx, int scenarios) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Feature: Feature ").append(featureIdx).append("\n\n");
+        for (int scenarioIdx = 0; scenarioIdx < scenarios; scenarioIdx++) {
+            sb.append("  Scenario: ").append(getScenarioName(featureIdx, scenarioIdx)).append('\n');
+            for (int stepIdx = 0; stepIdx < stepsPerScenario; stepIdx++)
+                sb.append("    ").append(getStepKeyword(stepIdx)).append(getStepText(stepIdx)).append('\n');
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private int getScenarioLine(int scenarioIdx) {
+        // feature header and a blank line, then each scenario takes its steps plus the scenario line and a blank line
+        return 3 + scenarioIdx * (stepsPerScenario + 2);
+    }
+
+    private static String getFeatureUri(int featureIdx) {
+        return "features/feature" + featureIdx + ".feature";
+    }
+
+    private static String getScenarioName(int featureIdx, int scenarioIdx) {
+        return "Scenario " + featureIdx + "-" + scenarioIdx;
+    }
+
+    private static String getCucumberId(int featureIdx, int scenarioIdx, int line) {
+        return "feature" + featureIdx + ".feature:" + line + " # " + getScenarioName(featureIdx, scenarioIdx);
+    }
+
+    private static String getStepKeyword(int stepIdx) {
+        return STEP_KEYWORDS[Math.min(stepIdx, STEP_KEYWORDS.length - 1)];
+    }
+
+    private static String getStepText(int stepIdx) {
+        return "synthetic step " + stepIdx;
+    }
+
+    private static class SyntheticTestCase implements TestCase {
+        private final String uri;
+        private final int line;
+        private final String name;
+        private final String designation;
+        private final List<TestStep> steps = new ArrayList<>();
+
+        SyntheticTestCase(String uri, int featureIdx, int scenarioIdx, int line, int stepCount) {
+            this.uri = uri;
+            this.line = line;
+            this.name = getScenarioName(featureIdx, scenarioIdx);
+            this.designation = uri + ":" + line + " # " + name;
+            for (int stepIdx = 0; stepIdx < stepCount; stepIdx++)
+                steps.add(new SyntheticStep(getStepText(stepIdx), line + stepIdx + 1));
+        }
+
+        @Override
+        public int getLine() {
+            return line;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getScenarioDesignation() {
+            return designation;
+        }
+
+        @Override
+        public List<PickleTag> getTags() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<TestStep> getTestSteps() {
+            return steps;
+        }
+
+        @Override
+        public String getUri() {
+            return uri;
+        }
+    }
+
+    private static class SyntheticStep implements PickleStepTestStep {
+        private final String text;
+        private final int line;
+
+        SyntheticStep(String text, int line) {
+            this.text = text;
+            this.line = line;
+        }
+
+        @Override
+        public String getPattern() {
+            return text;
+        }
+
+        @Override
+        public PickleStep getPickleStep() {
+            return new PickleStep(text, Collections.<gherkin.pickles.Argument>emptyList(), Collections.singletonList(new PickleLocation(line, 5)));
+        }
+
+        @Override
+        public List<Argument> getDefinitionArgument() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<gherkin.pickles.Argument> getStepArgument() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public int getStepLine() {
+            return line;
+        }
+
+        @Override
+        public String getStepLocation() {
+            return "synthetic:" + line;
+        }
+
+        @Override
+        public String getStepText() {
+            return text;
+        }
+
+        @Override
+        public String getCodeLocation() {
+            return "SyntheticSteps.step()";
+        }
+    }
+
+    private static class SyntheticEventBus implements EventPublisher {
+        private final Map<Class<? extends Event>, List<EventHandler>> handlers = new HashMap<>();
+
+        @Override
+        public <T extends Event> void registerHandlerFor(Class<T> eventType, EventHandler<T> handler) {
+            handlers.computeIfAbsent(eventType, type -> new ArrayList<>()).add(handler);
+        }
+
+        @Override
+        public <T extends Event> void removeHandlerFor(Class<T> eventType, EventHandler<T> handler) {
+            List<EventHandler> eventHandlers = handlers.get(eventType);
+            if (eventHandlers != null)
+                eventHandlers.remove(handler);
+        }
+
+        @SuppressWarnings("unchecked")
+        void send(Event event) {
+            List<EventHandler> eventHandlers = handlers.get(event.getClass());
+            if (eventHandlers == null)
+                return;
+            for (EventHandler handler : eventHandlers)
+                handler.receive(event);
+        }
+    }
+}
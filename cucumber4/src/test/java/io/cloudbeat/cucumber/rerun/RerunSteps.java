@@ -0,0 +1,29 @@
+package io.cloudbeat.cucumber.rerun;
+
+import cucumber.api.java.en.Given;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Steps of the features {@link RerunTest} writes, one of them fails only on its first attempt.
+ */
+public class RerunSteps {
+    static final AtomicInteger flakyRuns = new AtomicInteger();
+
+    @Given("a step which passes")
+    public void passes() {
+    }
+
+    @Given("a step which fails the first time")
+    public void failsTheFirstTime() {
+        assertTrue("First attempt", flakyRuns.incrementAndGet() > 1);
+    }
+
+    @Given("a step which always fails")
+    public void alwaysFails() {
+        fail("Every attempt");
+    }
+}
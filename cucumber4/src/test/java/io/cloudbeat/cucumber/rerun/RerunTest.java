@@ -0,0 +1,154 @@
+package io.cloudbeat.cucumber.rerun;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cucumber.api.cli.Main;
+import io.cloudbeat.cucumber.CucumberRunner;
+import io.cloudbeat.cucumber.harness.MockTestMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs Cucumber 4 through {@link CucumberRunner#runWithRerun} with a scenario which fails on its first attempt only.
+ */
+public class RerunTest {
+    private static final String TEST_RESULTS_FILENAME = ".CB_TEST_RESULTS";
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    private MockTestMonitor monitor;
+    private final ObjectMapper mapper = new ObjectMapper();
+    // feature paths or locations of each attempt
+    private final List<List<String>> attempts = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        monitor = new MockTestMonitor();
+        RerunSteps.flakyRuns.set(0);
+        Path payloadPath = workDir.newFile("payload.json").toPath();
+        Files.write(payloadPath, ("{\"RunId\":\"rerun-run\",\"InstanceId\":\"rerun-instance\","
+                + "\"Capabilities\":{\"browserName\":\"chrome\"},\"Metadata\":{},\"EnvironmentVariables\":{},\"Cases\":["
+                + "{\"Id\":1,\"Order\":1,\"Details\":{\"cucumberId\":\"rerun.feature:3 # Flaky\"}},"
+                + "{\"Id\":2,\"Order\":2,\"Details\":{\"cucumberId\":\"rerun.feature:6 # Second\"}}]}").getBytes(StandardCharsets.UTF_8));
+        System.setProperty("payloadpath", payloadPath.toString());
+        System.setProperty("testmonitorurl", monitor.getUrl());
+        System.setProperty("testmonitortoken", MockTestMonitor.TOKEN);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("payloadpath");
+        System.clearProperty("testmonitorurl");
+        System.clearProperty("testmonitortoken");
+        monitor.close();
+        new File(TEST_RESULTS_FILENAME).delete();
+    }
+
+    @Test
+    public void failedCaseIsRerunUntilItPasses() throws IOException {
+        String feature = writeFeature("a step which passes");
+
+        assertEquals(0, runWithRerun(feature, 3));
+
+        // only the failed case is run again, and no third attempt is made once it passed
+        assertEquals(2, attempts.size());
+        assertLocations(attempts.get(1), 3);
+        JsonNode rootNode = mapper.readTree(new File(TEST_RESULTS_FILENAME));
+        assertEquals("Passed", rootNode.get("status").textValue());
+        JsonNode cases = rootNode.get("suites").get(0).get("cases");
+        assertEquals(3, cases.size());
+        assertCase(cases.get(0), 1, 1, "Failed");
+        assertCase(cases.get(1), 2, 1, "Passed");
+        assertCase(cases.get(2), 1, 2, "Passed");
+
+        JsonNode status = getLastCaseStatus(1);
+        assertEquals(1, status.get("iterationsPassed").intValue());
+        assertEquals(1, status.get("iterationsFailed").intValue());
+    }
+
+    @Test
+    public void attemptsStopAtMaxAttempts() throws IOException {
+        String feature = writeFeature("a step which always fails");
+
+        assertEquals(1, runWithRerun(feature, 3));
+
+        assertEquals(3, attempts.size());
+        assertLocations(attempts.get(1), 3, 6);
+        assertLocations(attempts.get(2), 6);
+        JsonNode rootNode = mapper.readTree(new File(TEST_RESULTS_FILENAME));
+        // the flaky case passed on its second attempt, the other one failed on its last attempt
+        assertEquals("Failed", rootNode.get("status").textValue());
+        JsonNode cases = rootNode.get("suites").get(0).get("cases");
+        assertEquals(5, cases.size());
+        assertCase(cases.get(2), 1, 2, "Passed");
+        assertCase(cases.get(4), 2, 3, "Failed");
+
+        JsonNode status = getLastCaseStatus(2);
+        assertEquals(0, status.get("iterationsPassed").intValue());
+        assertEquals(3, status.get("iterationsFailed").intValue());
+    }
+
+    private String writeFeature(String secondStep) throws IOException {
+        Path path = workDir.getRoot().toPath().resolve("rerun.feature");
+        Files.write(path, ("Feature: Rerun\n"
+                + "\n"
+                + "  Scenario: Flaky\n"
+                + "    Given a step which fails the first time\n"
+                + "\n"
+                + "  Scenario: Second\n"
+                + "    Given " + secondStep + "\n").getBytes(StandardCharsets.UTF_8));
+        return path.toString();
+    }
+
+    private byte runWithRerun(String feature, int maxAttempts) {
+        return CucumberRunner.runWithRerun(Collections.singletonList(feature), maxAttempts, features -> {
+            attempts.add(features);
+            List<String> argv = new ArrayList<>();
+            Collections.addAll(argv, "--glue", "io.cloudbeat.cucumber.rerun", "--plugin", "io.cloudbeat.cucumber.Plugin:");
+            argv.addAll(features);
+            return Main.run(argv.toArray(new String[0]), Thread.currentThread().getContextClassLoader());
+        });
+    }
+
+    // Cucumber reports the feature's uri, e.g. file:/tmp/junit123/rerun.feature
+    private static void assertLocations(List<String> locations, int... lines) {
+        assertEquals(lines.length, locations.size());
+        for (int i = 0; i < lines.length; i++)
+            assertTrue(locations.get(i), locations.get(i).endsWith("/rerun.feature:" + lines[i]));
+    }
+
+    private static void assertCase(JsonNode caze, long id, int iterationNum, String status) {
+        assertEquals(id, caze.get("id").longValue());
+        assertEquals(iterationNum, caze.get("iterationNum").intValue());
+        assertEquals(status, caze.get("status").textValue());
+    }
+
+    private JsonNode getLastCaseStatus(long caseId) throws IOException {
+        JsonNode last = null;
+        for (MockTestMonitor.RecordedRequest request : monitor.getRequests("/status")) {
+            JsonNode caze = mapper.readTree(request.body).get("case");
+            if (caze != null && caze.get("id").longValue() == caseId
+                    && (last == null || caze.get("iterationsPassed").intValue() + caze.get("iterationsFailed").intValue()
+                    > last.get("iterationsPassed").intValue() + last.get("iterationsFailed").intValue()))
+                last = caze;
+        }
+        assertTrue("No status of case " + caseId, last != null);
+        return last;
+    }
+}
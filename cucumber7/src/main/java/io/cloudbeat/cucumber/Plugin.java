@@ -0,0 +1,526 @@
+package io.cloudbeat.cucumber;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.Argument;
+import io.cucumber.plugin.event.DataTableArgument;
+import io.cucumber.plugin.event.DocStringArgument;
+import io.cucumber.plugin.event.EmbedEvent;
+import io.cucumber.plugin.event.Event;
+import io.cucumber.plugin.event.EventHandler;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.HookType;
+import io.cucumber.plugin.event.Node;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.StepArgument;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestSourceParsed;
+import io.cucumber.plugin.event.TestStep;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.TestStepStarted;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cucumber 7 adapter. Builds the same feature maps as the Cucumber 4 adapter, but since events of different scenarios
+ * arrive concurrently, state is kept per test case and the maps are put in canonical (uri, line) order at the end of the run.
+ * <p>
+ * Event handlers do the thread bound work and pass the event on. With {@code eventbuffersize} set, the rest (building
+ * the feature maps, formatting errors and reporting statuses) is done by the consumer thread
+ * of an {@link EventRing}, otherwise right away on the runner thread.
+ */
+public final class Plugin implements ConcurrentEventListener {
+    private final Map<UUID, CaseState> runningCases = new ConcurrentHashMap<>();
+    private final List<CaseState> finishedCases = Collections.synchronizedList(new ArrayList<>());
+    // scenario or example line -> line of its scenario definition, per feature file
+    private final Map<URI, Map<Integer, Integer>> scenarioDefinitionLines = new ConcurrentHashMap<>();
+    private final ResultReporter reporter;
+    private final TraceRecorder trace;
+    private EventRing<EventSlot> events;
+
+    private EventHandler<TestSourceParsed> testSourceParsedHandler = event -> publish(claim(event));
+    private EventHandler<TestCaseStarted> caseStartedHandler = event -> onTestCaseStarted(event);
+    private EventHandler<TestCaseFinished> caseFinishedHandler = event -> onTestCaseFinished(event);
+    private EventHandler<TestCaseFinished> releaseWebDriverHandler = event -> CucumberRunner.releaseWebDriver();
+    private EventHandler<TestStepStarted> stepStartedHandler = event -> onTestStepStarted(event);
+    private EventHandler<TestStepFinished> stepFinishedHandler = event -> onTestStepFinished(event);
+    private EventHandler<TestRunFinished> runFinishedHandler = event -> finishReport();
+    private EventHandler<EmbedEvent> embedEventhandler = event -> publish(claim(event));
+
+    private static final class CaseState {
+        final TestCase testCase;
+        final int definitionLine;
+        final Map<String, Object> testCaseMap;
+        Map<String, Object> backgroundMap;
+        Map<String, Object> elementMap;
+        List<Map<String, Object>> stepsList;
+        Map<String, Object> currentStepOrHookMap;
+        final Map<String, Object> beforeStepHookList = new HashMap<String, Object>();
+        int lane;
+
+        CaseState(TestCase testCase, int definitionLine, Map<String, Object> testCaseMap, Map<String, Object> backgroundMap) {
+            this.testCase = testCase;
+            this.definitionLine = definitionLine;
+            this.testCaseMap = testCaseMap;
+            this.backgroundMap = backgroundMap;
+            this.elementMap = backgroundMap != null ? backgroundMap : testCaseMap;
+            this.stepsList = (List<Map<String, Object>>) elementMap.get("steps");
+        }
+    }
+
+    private static final class EventSlot extends EventRing.Slot {
+        Event event;
+        // Cucumber 7 event timestamps are wall clock instants, the maps use System.nanoTime()
+        long timestamp;
+        // taken on the runner thread: start timestamp, memory samples and result cache lookup of a case
+        Map<String, Object> caseAttributes;
+        byte[] screenshot;
+        String log;
+
+        @Override
+        protected void clear() {
+            event = null;
+            caseAttributes = null;
+            screenshot = null;
+            log = null;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Plugin(String arg) {
+        reporter = ResultReporter.create();
+        trace = reporter.getTrace();
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Plugin() {
+        this(null);
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        if (!reporter.isInitialized()) {
+            // the WebDriver pool works without reporting as well
+            publisher.registerHandlerFor(TestCaseFinished.class, releaseWebDriverHandler);
+            return;
+        }
+        int eventBufferSize = Integer.getInteger("eventbuffersize", 0);
+        if (eventBufferSize > 0)
+            events = new EventRing<>(eventBufferSize, EventSlot::new, this::handleEvent);
+        publisher.registerHandlerFor(TestSourceParsed.class, testSourceParsedHandler);
+        publisher.registerHandlerFor(TestCaseStarted.class, caseStartedHandler);
+        publisher.registerHandlerFor(TestCaseFinished.class, caseFinishedHandler);
+        publisher.registerHandlerFor(TestStepStarted.class, stepStartedHandler);
+        publisher.registerHandlerFor(TestStepFinished.class, stepFinishedHandler);
+        publisher.registerHandlerFor(EmbedEvent.class, embedEventhandler);
+        publisher.registerHandlerFor(TestRunFinished.class, runFinishedHandler);
+    }
+
+    private EventSlot claim(Event event) {
+        long timestamp = System.nanoTime();
+        EventSlot slot = events != null ? events.claim() : new EventSlot();
+        slot.event = event;
+        slot.timestamp = timestamp;
+        return slot;
+    }
+
+    private void publish(EventSlot slot) {
+        if (events != null)
+            events.publish(slot);
+        else
+            handleEvent(slot);
+    }
+
+    private void onTestCaseStarted(TestCaseStarted event) {
+        // skipped by CucumberRunner.skipIfNeeded, not part of the partial results
+        if (reporter.isCanceled())
+            return;
+        TestCase testCase = event.getTestCase();
+        Map<String, Object> caseAttributes = new HashMap<String, Object>();
+        caseAttributes.put("start_timestamp", System.nanoTime());
+        MemorySample memory = reporter.sampleMemory();
+        if (memory != null)
+            caseAttributes.put("start_memory", memory);
+        reporter.checkResultCache(caseAttributes, () -> getPickleText(testCase));
+        reporter.caseStarted(getScenarioDesignation(testCase), testCase.getName(), countSteps(testCase));
+        EventSlot slot = claim(event);
+        slot.caseAttributes = caseAttributes;
+        publish(slot);
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        Map<String, Object> caseAttributes = new HashMap<String, Object>();
+        caseAttributes.put("end_timestamp", System.nanoTime());
+        MemorySample memory = reporter.sampleMemory();
+        if (memory != null)
+            caseAttributes.put("end_memory", memory);
+        reporter.caseFinished(caseAttributes);
+        CucumberRunner.releaseWebDriver();
+        EventSlot slot = claim(event);
+        slot.caseAttributes = caseAttributes;
+        publish(slot);
+    }
+
+    private void onTestStepStarted(TestStepStarted event) {
+        reporter.stepStarted(event.getTestStep() instanceof HookTestStep);
+        publish(claim(event));
+    }
+
+    private void onTestStepFinished(TestStepFinished event) {
+        byte[] screenshot = null;
+        String log = null;
+        if (event.getResult().getStatus() == Status.FAILED) {
+            screenshot = reporter.takeScreenshot();
+            log = reporter.getStepLog();
+        }
+        EventSlot slot = claim(event);
+        slot.screenshot = screenshot;
+        slot.log = log;
+        publish(slot);
+    }
+
+    private void handleEvent(EventSlot slot) {
+        if (slot.event instanceof TestSourceParsed)
+            handleTestSourceParsed((TestSourceParsed)slot.event);
+        else if (slot.event instanceof TestCaseStarted)
+            handleTestCaseStarted((TestCaseStarted)slot.event, slot);
+        else if (slot.event instanceof TestCaseFinished)
+            handleTestCaseFinished((TestCaseFinished)slot.event, slot);
+        else if (slot.event instanceof TestStepStarted)
+            handleTestStepStarted((TestStepStarted)slot.event, slot);
+        else if (slot.event instanceof TestStepFinished)
+            handleTestStepFinished((TestStepFinished)slot.event, slot);
+        else if (slot.event instanceof EmbedEvent)
+            handleEmbed((EmbedEvent)slot.event);
+    }
+
+    private void handleTestSourceParsed(TestSourceParsed event) {
+        Map<Integer, Integer> lines = new HashMap<>();
+        for (Node node : event.getNodes())
+            indexScenarioDefinitionLines(node, 0, lines);
+        scenarioDefinitionLines.put(event.getUri(), lines);
+    }
+
+    private void indexScenarioDefinitionLines(Node node, int outlineLine, Map<Integer, Integer> lines) {
+        int line = node.getLocation().getLine();
+        if (node instanceof Node.ScenarioOutline)
+            outlineLine = line;
+        else if (node instanceof Node.Scenario)
+            lines.put(line, line);
+        else if (node instanceof Node.Example)
+            lines.put(line, outlineLine);
+
+        if (node instanceof Node.Container) {
+            for (Object child : ((Node.Container<?>) node).elements())
+                indexScenarioDefinitionLines((Node) child, outlineLine, lines);
+        }
+    }
+
+    private void handleTestCaseStarted(TestCaseStarted event, EventSlot slot) {
+        TestCase testCase = event.getTestCase();
+        int caseLine = testCase.getLocation().getLine();
+        Map<Integer, Integer> lines = scenarioDefinitionLines.get(testCase.getUri());
+        int definitionLine = lines != null && lines.containsKey(caseLine) ? lines.get(caseLine) : caseLine;
+
+        Map<String, Object> testCaseMap = createTestCase(testCase);
+        testCaseMap.putAll(slot.caseAttributes);
+        // background steps are the only steps located above the scenario definition
+        Map<String, Object> backgroundMap = null;
+        int firstStepLine = getFirstStepLine(testCase);
+        if (firstStepLine > 0 && firstStepLine < definitionLine)
+            backgroundMap = createBackground(firstStepLine);
+
+        CaseState state = new CaseState(testCase, definitionLine, testCaseMap, backgroundMap);
+        if (trace != null)
+            state.lane = trace.acquireLane((long)testCaseMap.get("start_timestamp"));
+        runningCases.put(testCase.getId(), state);
+    }
+
+    private void handleTestCaseFinished(TestCaseFinished event, EventSlot slot) {
+        CaseState state = runningCases.remove(event.getTestCase().getId());
+        if (state == null)
+            return;
+        state.testCaseMap.putAll(slot.caseAttributes);
+        long timestamp = (long)state.testCaseMap.get("end_timestamp");
+        if (trace != null) {
+            trace.add(state.testCase.getName(), TraceRecorder.CATEGORY_CASE, (long)state.testCaseMap.get("start_timestamp"), timestamp, state.lane);
+            trace.releaseLane(state.lane, timestamp);
+        }
+
+        finishedCases.add(state);
+        reporter.reportCaseStatus(getScenarioDesignation(state.testCase), state.testCase.getUri() + ":" + state.testCase.getLocation().getLine(), state.testCaseMap);
+        if (reporter.collapseCase(state.testCaseMap)) {
+            state.backgroundMap = null;
+            state.elementMap = null;
+            state.stepsList = null;
+            state.currentStepOrHookMap = null;
+        }
+    }
+
+    private void handleTestStepStarted(TestStepStarted event, EventSlot slot) {
+        CaseState state = runningCases.get(event.getTestCase().getId());
+        if (state == null)
+            return;
+        if (event.getTestStep() instanceof PickleStepTestStep) {
+            PickleStepTestStep testStep = (PickleStepTestStep) event.getTestStep();
+            if (state.elementMap != state.testCaseMap && testStep.getStep().getLine() > state.definitionLine) {
+                state.elementMap = state.testCaseMap;
+                state.stepsList = (List<Map<String, Object>>) state.elementMap.get("steps");
+            }
+            state.currentStepOrHookMap = createTestStep(testStep);
+            state.currentStepOrHookMap.put("start_timestamp", slot.timestamp);
+            //add beforeSteps list to current step
+            if (state.beforeStepHookList.containsKey("before")) {
+                state.currentStepOrHookMap.put("before", state.beforeStepHookList.get("before"));
+                state.beforeStepHookList.clear();
+            }
+            state.stepsList.add(state.currentStepOrHookMap);
+        } else if (event.getTestStep() instanceof HookTestStep) {
+            HookTestStep hookTestStep = (HookTestStep) event.getTestStep();
+            state.currentStepOrHookMap = new HashMap<String, Object>();
+            state.currentStepOrHookMap.put("start_timestamp", slot.timestamp);
+            addHookStepToTestCaseMap(state, state.currentStepOrHookMap, hookTestStep.getHookType());
+        } else {
+            throw new IllegalStateException();
+        }
+    }
+
+    private void handleEmbed(EmbedEvent event) {
+        CaseState state = runningCases.get(event.getTestCase().getId());
+        if (state == null || state.currentStepOrHookMap == null)
+            return;
+        if (!state.currentStepOrHookMap.containsKey("embeddings")) {
+            state.currentStepOrHookMap.put("embeddings", new ArrayList<Map<String, Object>>());
+        }
+        Map<String, Object> embedMap = new HashMap<String, Object>();
+        embedMap.put("mime_type", event.getMediaType());
+        embedMap.put("data", event.getData());
+        ((List<Map<String, Object>>)state.currentStepOrHookMap.get("embeddings")).add(embedMap);
+    }
+
+    private void handleTestStepFinished(TestStepFinished event, EventSlot slot) {
+        CaseState state = runningCases.get(event.getTestCase().getId());
+        if (state == null || state.currentStepOrHookMap == null)
+            return;
+        state.currentStepOrHookMap.put("match", createMatchMap(event.getTestStep(), event.getResult()));
+        state.currentStepOrHookMap.put("result", createResultMap(event.getResult()));
+        state.currentStepOrHookMap.put("end_timestamp", slot.timestamp);
+        if (slot.screenshot != null)
+            state.currentStepOrHookMap.put("screenshot", slot.screenshot);
+        if (slot.log != null)
+            state.currentStepOrHookMap.put("log", slot.log);
+        if (trace != null) {
+            long stepStart = (long)state.currentStepOrHookMap.get("start_timestamp");
+            if (event.getTestStep() instanceof PickleStepTestStep)
+                trace.add(((PickleStepTestStep)event.getTestStep()).getStepText(), TraceRecorder.CATEGORY_STEP, stepStart, slot.timestamp, state.lane);
+            else if (event.getTestStep() instanceof HookTestStep)
+                trace.add(getHookName(((HookTestStep)event.getTestStep()).getHookType()), TraceRecorder.CATEGORY_HOOK, stepStart, slot.timestamp, state.lane);
+        }
+    }
+
+    private static int countSteps(TestCase testCase) {
+        int count = 0;
+        for (TestStep testStep : testCase.getTestSteps()) {
+            if (testStep instanceof PickleStepTestStep)
+                count++;
+        }
+        return count;
+    }
+
+    private static String getPickleText(TestCase testCase) {
+        StringBuilder sb = new StringBuilder(testCase.getName()).append('\n');
+        for (String tag : testCase.getTags())
+            sb.append(tag).append('\n');
+        for (TestStep testStep : testCase.getTestSteps()) {
+            if (!(testStep instanceof PickleStepTestStep))
+                continue;
+            PickleStepTestStep pickleStep = (PickleStepTestStep)testStep;
+            sb.append(pickleStep.getStep().getText()).append('\n');
+            StepArgument argument = pickleStep.getStep().getArgument();
+            if (argument instanceof DocStringArgument)
+                sb.append(((DocStringArgument)argument).getContent()).append('\n');
+            else if (argument instanceof DataTableArgument) {
+                for (List<String> row : ((DataTableArgument)argument).cells()) {
+                    for (String cell : row)
+                        sb.append('|').append(cell);
+                    sb.append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private void finishReport() {
+        // everything published before the end of the run has to be in the results
+        if (events != null)
+            events.close();
+        List<CaseState> cases;
+        synchronized (finishedCases) {
+            cases = new ArrayList<>(finishedCases);
+        }
+        // parallel runs finish cases in any order, the Cucumber 4 adapter sorts its results the same way
+        cases.sort(Comparator.comparing((CaseState state) -> state.testCase.getUri().toString())
+                .thenComparingInt(state -> state.testCase.getLocation().getLine()));
+
+        List<Map<String, Object>> featureMaps = new ArrayList<Map<String, Object>>();
+        URI currentFeatureFile = null;
+        List<Map<String, Object>> currentElementsList = null;
+        for (CaseState state : cases) {
+            if (currentFeatureFile == null || !currentFeatureFile.equals(state.testCase.getUri())) {
+                currentFeatureFile = state.testCase.getUri();
+                Map<String, Object> featureMap = new HashMap<String, Object>();
+                featureMap.put("uri", currentFeatureFile.toString());
+                featureMap.put("elements", new ArrayList<Map<String, Object>>());
+                featureMaps.add(featureMap);
+                currentElementsList = (List<Map<String, Object>>) featureMap.get("elements");
+            }
+            if (state.backgroundMap != null)
+                currentElementsList.add(state.backgroundMap);
+            currentElementsList.add(state.testCaseMap);
+        }
+
+        reporter.finishReport(featureMaps);
+    }
+
+    private Map<String, Object> createTestCase(TestCase testCase) {
+        Map<String, Object> testCaseMap = new HashMap<String, Object>();
+        testCaseMap.put("name", testCase.getName());
+        testCaseMap.put("line", testCase.getLocation().getLine());
+        testCaseMap.put("type", "scenario");
+        testCaseMap.put("cucumberId", ResultReporter.getCucumberScenarioId(getScenarioDesignation(testCase)));
+        testCaseMap.put("keyword", testCase.getKeyword());
+        testCaseMap.put("steps", new ArrayList<Map<String, Object>>());
+        if (!testCase.getTags().isEmpty()) {
+            List<Map<String, Object>> tagList = new ArrayList<Map<String, Object>>();
+            for (String tag : testCase.getTags()) {
+                Map<String, Object> tagMap = new HashMap<String, Object>();
+                tagMap.put("name", tag);
+                tagList.add(tagMap);
+            }
+            testCaseMap.put("tags", tagList);
+        }
+        return testCaseMap;
+    }
+
+    private Map<String, Object> createBackground(int line) {
+        Map<String, Object> backgroundMap = new HashMap<String, Object>();
+        backgroundMap.put("line", line);
+        backgroundMap.put("type", "background");
+        backgroundMap.put("steps", new ArrayList<Map<String, Object>>());
+        return backgroundMap;
+    }
+
+    private Map<String, Object> createTestStep(PickleStepTestStep testStep) {
+        Map<String, Object> stepMap = new HashMap<String, Object>();
+        stepMap.put("name", testStep.getStepText());
+        stepMap.put("line", testStep.getStep().getLine());
+        stepMap.put("keyword", testStep.getStep().getKeyword());
+        StepArgument argument = testStep.getStep().getArgument();
+        if (argument instanceof DocStringArgument) {
+            DocStringArgument docString = (DocStringArgument) argument;
+            Map<String, Object> docStringMap = new HashMap<String, Object>();
+            docStringMap.put("value", docString.getContent());
+            docStringMap.put("line", docString.getLine());
+            docStringMap.put("content_type", docString.getContentType());
+            stepMap.put("doc_string", docStringMap);
+        } else if (argument instanceof DataTableArgument) {
+            List<Map<String, Object>> rowList = new ArrayList<Map<String, Object>>();
+            for (List<String> row : ((DataTableArgument) argument).cells()) {
+                Map<String, Object> rowMap = new HashMap<String, Object>();
+                rowMap.put("cells", new ArrayList<String>(row));
+                rowList.add(rowMap);
+            }
+            stepMap.put("rows", rowList);
+        }
+        return stepMap;
+    }
+
+    private void addHookStepToTestCaseMap(CaseState state, Map<String, Object> currentStepOrHookMap, HookType hookType) {
+        String hookName = getHookName(hookType);
+
+        Map<String, Object> mapToAddTo;
+        switch (hookType) {
+            case BEFORE_STEP:
+                mapToAddTo = state.beforeStepHookList;
+                break;
+            case AFTER_STEP:
+                mapToAddTo = state.stepsList.isEmpty() ? state.testCaseMap : state.stepsList.get(state.stepsList.size() - 1);
+                break;
+            default:
+                mapToAddTo = state.testCaseMap;
+        }
+
+        if (!mapToAddTo.containsKey(hookName)) {
+            mapToAddTo.put(hookName, new ArrayList<Map<String, Object>>());
+        }
+        ((List<Map<String, Object>>)mapToAddTo.get(hookName)).add(currentStepOrHookMap);
+    }
+
+    private Map<String, Object> createMatchMap(TestStep step, Result result) {
+        Map<String, Object> matchMap = new HashMap<String, Object>();
+        if (step instanceof PickleStepTestStep) {
+            PickleStepTestStep testStep = (PickleStepTestStep) step;
+            if (!testStep.getDefinitionArgument().isEmpty()) {
+                List<Map<String, Object>> argumentList = new ArrayList<Map<String, Object>>();
+                for (Argument argument : testStep.getDefinitionArgument()) {
+                    Map<String, Object> argumentMap = new HashMap<String, Object>();
+                    if (argument.getValue() != null) {
+                        argumentMap.put("val", argument.getValue());
+                        argumentMap.put("offset", argument.getStart());
+                    }
+                    argumentList.add(argumentMap);
+                }
+                matchMap.put("arguments", argumentList);
+            }
+        }
+        if (result.getStatus() != Status.UNDEFINED) {
+            matchMap.put("location", step.getCodeLocation());
+        }
+        return matchMap;
+    }
+
+    private Map<String, Object> createResultMap(Result result) {
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put("status", result.getStatus().name().toLowerCase(Locale.ROOT));
+        if (result.getError() != null) {
+            // same format as Cucumber 4 Result.getErrorMessage()
+            StringWriter stringWriter = new StringWriter();
+            result.getError().printStackTrace(new PrintWriter(stringWriter));
+            resultMap.put("error_message", stringWriter.toString());
+        }
+        if (result.getDuration() != null && !result.getDuration().isZero()) {
+            resultMap.put("duration", result.getDuration().toNanos());
+        }
+        return resultMap;
+    }
+
+    private static int getFirstStepLine(TestCase testCase) {
+        for (TestStep testStep : testCase.getTestSteps()) {
+            if (testStep instanceof PickleStepTestStep)
+                return ((PickleStepTestStep) testStep).getStep().getLine();
+        }
+        return 0;
+    }
+
+    private static String getHookName(HookType hookType) {
+        return hookType == HookType.AFTER || hookType == HookType.AFTER_STEP ? "after" : "before";
+    }
+
+    /**
+     * Same format as Cucumber 4 TestCase.getScenarioDesignation(), which is what payload case ids are derived from.
+     */
+    private static String getScenarioDesignation(TestCase testCase) {
+        URI uri = testCase.getUri();
+        String path = uri.isOpaque() ? uri.getSchemeSpecificPart() : uri.getPath();
+        return path + ":" + testCase.getLocation().getLine() + " # " + testCase.getName();
+    }
+}